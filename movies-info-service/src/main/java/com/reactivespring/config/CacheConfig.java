@@ -0,0 +1,32 @@
+package com.reactivespring.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public Cache<String, MovieInfo> movieInfoCache(
+            @Value("${movieInfo.cache.maximumSize:10000}") long maximumSize,
+            @Value("${movieInfo.cache.ttl:10m}") Duration ttl,
+            MeterRegistry meterRegistry
+    ) {
+        Cache<String, MovieInfo> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        // exposes cache.gets{result=hit|miss}, cache.evictions, cache.size under cache=movieInfo
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "movieInfo");
+    }
+}
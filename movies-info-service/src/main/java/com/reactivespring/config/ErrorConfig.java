@@ -0,0 +1,22 @@
+package com.reactivespring.config;
+
+import com.reactivespring.util.ErrorReporter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class ErrorConfig {
+
+    @Bean
+    public ErrorReporter errorReporter(
+            @Value("${errors.log.maxPerInterval:10}") int maxPerInterval,
+            @Value("${errors.log.interval:1m}") Duration interval,
+            MeterRegistry meterRegistry
+    ) {
+        return new ErrorReporter(maxPerInterval, interval, meterRegistry);
+    }
+}
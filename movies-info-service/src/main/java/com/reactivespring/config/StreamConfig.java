@@ -0,0 +1,24 @@
+package com.reactivespring.config;
+
+import com.reactivespring.stream.BoundedFanOut;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class StreamConfig {
+
+    @Bean
+    public BoundedFanOut movieInfoStreamFanOut(
+            @Value("${movieInfo.stream.subscriber.bufferSize:256}") int bufferSize,
+            @Value("${movieInfo.stream.subscriber.overflowPolicy:DROP_OLDEST}") BoundedFanOut.OverflowPolicy overflowPolicy,
+            @Value("${movieInfo.stream.maxSubscribers:1000}") int maxSubscribers,
+            @Value("${movieInfo.stream.heartbeat:15s}") Duration heartbeat,
+            MeterRegistry meterRegistry
+    ) {
+        return new BoundedFanOut("movieinfo.stream", bufferSize, overflowPolicy, maxSubscribers, heartbeat, meterRegistry);
+    }
+}
@@ -0,0 +1,19 @@
+package com.reactivespring.config;
+
+import com.reactivespring.util.SignalTracer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public SignalTracer signalTracer(
+            @Value("${tracing.sampleRate:0}") double sampleRate,
+            MeterRegistry meterRegistry
+    ) {
+        return new SignalTracer(sampleRate, meterRegistry);
+    }
+}
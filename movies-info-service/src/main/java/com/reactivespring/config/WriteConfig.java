@@ -0,0 +1,22 @@
+package com.reactivespring.config;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.util.WriteCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class WriteConfig {
+
+    @Bean
+    public WriteCoalescer<MovieInfo, MovieInfo> movieInfoUpdateCoalescer(
+            @Value("${movieInfo.update.coalesceWindow:0ms}") Duration coalesceWindow,
+            MeterRegistry meterRegistry
+    ) {
+        return new WriteCoalescer<>("movieinfo.update", coalesceWindow, meterRegistry);
+    }
+}
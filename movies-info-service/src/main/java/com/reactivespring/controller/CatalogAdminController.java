@@ -0,0 +1,40 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.domain.ImportResult;
+import com.reactivespring.service.CatalogTransferService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/v1/admin/movieinfos")
+@RequiredArgsConstructor
+public class CatalogAdminController {
+    private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final CatalogTransferService catalogTransferService;
+
+    @GetMapping("/export")
+    public ResponseEntity<Flux<byte[]>> exportMovieInfos() {
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("movieinfos.ndjson.gz").build().toString())
+                .body(catalogTransferService.exportMovieInfos());
+    }
+
+    @PostMapping("/import")
+    public Mono<ImportResult> importMovieInfos(@RequestBody Flux<DataBuffer> body) {
+        return catalogTransferService.importMovieInfos(body);
+    }
+}
@@ -1,5 +1,7 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.util.SignalTracer;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -9,23 +11,26 @@ import reactor.core.publisher.Mono;
 import java.time.Duration;
 
 @RestController
+@RequiredArgsConstructor
 public class FluxAndMonoController {
 
+    private final SignalTracer signalTracer;
+
     @GetMapping("/flux")
     public Flux<Integer> flux() {
         return Flux.just(1, 2, 3)
-                .log();
+                .transform(signalTracer.flux("flux"));
     }
 
     @GetMapping("/mono")
     public Mono<String> helloWorldMono() {
         return Mono.just("hello-world")
-                .log();
+                .transform(signalTracer.mono("mono"));
     }
 
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<Long> stream() {
         return Flux.interval(Duration.ofSeconds(1))
-                .log();
+                .transform(signalTracer.flux("stream"));
     }
 }
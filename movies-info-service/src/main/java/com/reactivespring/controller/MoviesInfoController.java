@@ -1,19 +1,40 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.domain.CatalogStat;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.domain.Suggestion;
 import com.reactivespring.service.MovieInfoService;
+import com.reactivespring.service.MovieInfoStatsService;
+import com.reactivespring.service.RecentReleasesCache;
+import com.reactivespring.suggest.MovieInfoSuggestIndex;
+import com.reactivespring.util.SignalTracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.Valid;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/v1")
@@ -21,35 +42,134 @@ import javax.validation.Valid;
 @Slf4j
 public class MoviesInfoController {
 
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_SUGGEST_LIMIT = MovieInfoSuggestIndex.MAX_LIMIT;
+    private static final int MAX_PAGE_LIMIT = 1000;
+
     private final MovieInfoService movieInfoService;
+    private final MovieInfoStatsService movieInfoStatsService;
+    private final RecentReleasesCache recentReleasesCache;
+    private final SignalTracer signalTracer;
 
-    Sinks.Many<MovieInfo> moviesInfoSink = Sinks.many().replay().latest();
+    @Value("${movieInfo.http.maxAge:0s}")
+    private Duration maxAge;
 
-    @GetMapping("/movieinfos")
-    public Flux<MovieInfo> getAllMovieInfos(
-            @RequestParam(value = "year", required = false) Integer year
+    @GetMapping(value = "/movieinfos", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<MovieInfo>>> getAllMovieInfos(
+            ServerWebExchange exchange,
+            @RequestParam(value = "year", required = false) Integer year,
+            @RequestParam(value = "cast", required = false) String cast,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "100") Integer limit,
+            @RequestParam(value = "fields", required = false) Set<String> fields
     ) {
         log.info("Year is: {}", year);
 
-        if (year != null) {
-            return movieInfoService.getMovieInfoByYear(year);
-        } else {
-            return movieInfoService.getAllMovieInfos().log();
+        if (cast != null) {
+            var pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_LIMIT);
+            return tagged(exchange, fields, movieInfoService.getMovieInfoByCast(cast, after, pageSize, fields),
+                    movieInfos -> movieInfos.size() < pageSize ? null
+                            : nextPage(exchange, last(movieInfos).getMovieInfoId()));
         }
+        // the whole catalog or a whole year has no upper bound, it is streamed untagged rather than buffered
+        var movieInfoFlux = year != null
+                ? movieInfoService.getMovieInfoByYear(year, fields)
+                : movieInfoService.getAllMovieInfos(fields).transform(signalTracer.flux("movieinfos.all"));
+        return Mono.just(ResponseEntity.ok().body(movieInfoFlux));
+    }
+
+    @GetMapping(value = "/movieinfos/search", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<MovieInfo>>> searchMovieInfos(
+            ServerWebExchange exchange,
+            @RequestParam("q") String text,
+            @RequestParam(value = "limit", defaultValue = "20") Integer limit,
+            @RequestParam(value = "fields", required = false) Set<String> fields
+    ) {
+        return tagged(exchange, fields,
+                movieInfoService.searchMovieInfos(text, Math.min(Math.max(limit, 1), MAX_SEARCH_LIMIT), fields));
+    }
+
+    @GetMapping(value = "/movieinfos/releases", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<MovieInfo>>> getMovieInfosByReleaseDate(
+            ServerWebExchange exchange,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "100") Integer limit,
+            @RequestParam(value = "fields", required = false) Set<String> fields
+    ) {
+        var pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_LIMIT);
+        return tagged(exchange, fields, movieInfoService.getMovieInfoByReleaseDate(from, to, after, pageSize, fields),
+                movieInfos -> movieInfos.size() < pageSize ? null
+                        : nextPage(exchange, MovieInfoService.releaseCursor(last(movieInfos))));
+    }
+
+    /**
+     * A window longer than movieInfo.releases.recentMaxSize is cut, the Link rel=next then goes on with the rest
+     * of it from /v1/movieinfos/releases.
+     */
+    @GetMapping(value = "/movieinfos/releases/recent", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<MovieInfo>>> getRecentReleases(ServerWebExchange exchange) {
+        return recentReleasesCache.recentReleases()
+                .flatMap(recent -> tagged(exchange, null, Flux.fromIterable(recent.getMovieInfos()),
+                        movieInfos -> !recent.isTruncated() ? null
+                                : UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                                .replacePath("/v1/movieinfos/releases")
+                                .replaceQuery(null)
+                                .queryParam("from", recent.getFrom())
+                                .queryParam("to", recent.getTo())
+                                .queryParam("after", encodedCursor(MovieInfoService.releaseCursor(last(movieInfos))))
+                                .build(true)
+                                .toUriString()));
+    }
+
+    @GetMapping("/movieinfos/suggest")
+    public List<Suggestion> suggest(
+            @RequestParam("prefix") String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") Integer limit
+    ) {
+        return movieInfoService.suggest(prefix, Math.min(Math.max(limit, 1), MAX_SUGGEST_LIMIT));
+    }
+
+    @GetMapping("/movieinfos/stats/years")
+    public Mono<List<CatalogStat>> countByYear() {
+        return movieInfoStatsService.countByYear();
+    }
+
+    @GetMapping("/movieinfos/stats/release-months")
+    public Mono<List<CatalogStat>> countByReleaseMonth() {
+        return movieInfoStatsService.countByReleaseMonth();
+    }
+
+    @GetMapping("/movieinfos/stats/top-cast")
+    public Mono<List<CatalogStat>> topCast(@RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+        return movieInfoStatsService.topCast(Math.min(Math.max(limit, 1), MAX_SEARCH_LIMIT));
     }
 
     @GetMapping("/movieinfos/{id}")
-    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id) {
-        return movieInfoService.getMovieInfoById(id)
-                .map(movieInfo -> ResponseEntity.ok().body(movieInfo))
+    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(
+            @PathVariable String id,
+            @RequestParam(value = "fields", required = false) Set<String> fields
+    ) {
+        // a matching If-None-Match turns this into a 304 before the body is written
+        return movieInfoService.getMovieInfoById(id, fields)
+                .map(movieInfo -> ResponseEntity.ok()
+                        .eTag(tagOf(movieInfo) + fieldsTag(fields))
+                        .cacheControl(cacheControl())
+                        .body(movieInfo))
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .transform(signalTracer.mono("movieinfos.byId"));
     }
 
     @GetMapping(value = "/movieinfos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
     public Flux<MovieInfo> getMovieInfoById() {
-        return moviesInfoSink.asFlux()
-                .log();
+        return movieInfoService.getMovieInfoStream()
+                .transform(signalTracer.flux("movieinfos.stream"));
+    }
+
+    @GetMapping(value = "/movieinfos/events", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieInfoEvent> getMovieInfoEvents() {
+        return movieInfoService.getMovieInfoEvents();
     }
 
 
@@ -57,10 +177,7 @@ public class MoviesInfoController {
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> addMovieInfo(@RequestBody @Valid MovieInfo movieInfo) {
         return movieInfoService.addMovieInfo(movieInfo)
-                .doOnNext(savedInfo -> moviesInfoSink.tryEmitNext(savedInfo))
-                .log();
-
-        // publish that movie to something
+                .transform(signalTracer.mono("movieinfos.add"));
     }
 
     @PutMapping("/movieinfos/{id}")
@@ -68,12 +185,81 @@ public class MoviesInfoController {
         return movieInfoService.updateMovieInfo(updatedMovieInfo, id)
                 .map(movieInfo -> ResponseEntity.ok().body(movieInfo))
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .transform(signalTracer.mono("movieinfos.update"));
     }
 
     @DeleteMapping("/movieinfos/{id}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public Mono<Void> deleteMovieInfoById(@PathVariable String id) {
-        return movieInfoService.deleteMovieInfo(id);
+    public Mono<ResponseEntity<Void>> deleteMovieInfoById(@PathVariable String id) {
+        return movieInfoService.deleteMovieInfo(id)
+                .map(deleted -> ResponseEntity.noContent().<Void>build())
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    private Mono<ResponseEntity<Flux<MovieInfo>>> tagged(ServerWebExchange exchange, Set<String> fields,
+                                                         Flux<MovieInfo> movieInfoFlux) {
+        return tagged(exchange, fields, movieInfoFlux, movieInfos -> null);
+    }
+
+    /**
+     * Bounded JSON lists (pages, search results, recent releases) are tagged with a digest of the ids and
+     * versions they hold, and pages link to the next one with a Link rel=next header. NDJSON is streamed untagged
+     * and unlinked since the tag and the cursor are only known once the last element is read.
+     *
+     * @param nextPage URI of the page after the given one, null when it is the last one
+     */
+    private Mono<ResponseEntity<Flux<MovieInfo>>> tagged(ServerWebExchange exchange, Set<String> fields,
+                                                         Flux<MovieInfo> movieInfoFlux,
+                                                         Function<List<MovieInfo>, String> nextPage) {
+        var ndjson = exchange.getRequest().getHeaders().getAccept().stream()
+                .anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+        if (ndjson) {
+            return Mono.just(ResponseEntity.ok().body(movieInfoFlux));
+        }
+
+        return movieInfoFlux.collectList()
+                .map(movieInfos -> {
+                    var tags = movieInfos.stream()
+                            .map(movieInfo -> movieInfo.getMovieInfoId() + ":" + tagOf(movieInfo))
+                            .collect(Collectors.joining(","));
+                    var next = nextPage.apply(movieInfos);
+                    return ResponseEntity.ok()
+                            .eTag(DigestUtils.md5DigestAsHex(tags.getBytes(StandardCharsets.UTF_8)) + fieldsTag(fields))
+                            .cacheControl(cacheControl())
+                            .headers(headers -> {
+                                if (next != null) {
+                                    headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+                                }
+                            })
+                            .body(Flux.fromIterable(movieInfos));
+                });
+    }
+
+    private static String nextPage(ServerWebExchange exchange, String after) {
+        return UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                .replaceQueryParam("after", encodedCursor(after))
+                .build(true)
+                .toUriString();
+    }
+
+    private static String encodedCursor(String cursor) {
+        // ids are given by the callers, they can hold anything
+        return UriUtils.encodeQueryParam(cursor, StandardCharsets.UTF_8);
+    }
+
+    private static MovieInfo last(List<MovieInfo> movieInfos) {
+        return movieInfos.get(movieInfos.size() - 1);
+    }
+
+    private static String tagOf(MovieInfo movieInfo) {
+        // documents written before versioning was introduced have none until their next update
+        return String.valueOf(movieInfo.getVersion() == null ? 0 : movieInfo.getVersion());
+    }
+
+    private static String fieldsTag(Set<String> fields) {
+        return fields == null || fields.isEmpty() ? "" : ";" + fields.stream().sorted().collect(Collectors.joining(","));
+    }
+
+    private CacheControl cacheControl() {
+        return maxAge.isZero() ? CacheControl.noCache() : CacheControl.maxAge(maxAge);
     }
 }
@@ -0,0 +1,15 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogStat {
+    // year, release month (yyyy-MM) or cast name depending on the statistic
+    private String key;
+
+    private long count;
+}
@@ -0,0 +1,16 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResult {
+    // documents inserted or updated
+    private long imported;
+
+    // lines that were not MovieInfo json or failed its validation (blank name, non positive year, ...)
+    private long rejected;
+}
@@ -1,9 +1,15 @@
 package com.reactivespring.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotBlank;
@@ -15,19 +21,37 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+// fields left out by a fields= projection are not sent at all
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Document
+// multikey on cast, _id keeps each actor's titles in cursor order
+@CompoundIndex(name = "cast_id", def = "{'cast': 1, '_id': 1}")
+// release date ranges in cursor order
+@CompoundIndex(name = "releaseDate_id", def = "{'releaseDate': 1, '_id': 1}")
 public class MovieInfo {
     @Id
     private String movieInfoId;
 
     @NotBlank(message = "movieInfo.name must be present")
+    @TextIndexed(weight = 2)
     private String name;
 
     @NotNull
     @Positive(message = "movieInfo.year must be a Positive value")
+    @Indexed
     private Integer year;
 
+    @TextIndexed
     private List<@NotBlank(message = "movieInfo.cast must be present") String> cast;
 
     private LocalDate releaseDate;
+
+    // bumped on every write, the ETag of the document
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate releaseDate) {
+        this(movieInfoId, name, year, cast, releaseDate, null);
+    }
 }
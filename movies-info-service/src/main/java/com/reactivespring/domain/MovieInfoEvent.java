@@ -0,0 +1,47 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovieInfoEvent {
+    // monotonically increasing, consumers can drop anything at or below the last sequence they applied
+    private long sequence;
+
+    private MovieInfoEventType type;
+
+    private String movieInfoId;
+
+    // full document, CREATED only
+    private MovieInfo movieInfo;
+
+    // changed fields and their new values, UPDATED only
+    private Map<String, Object> changes;
+
+    public static MovieInfoEvent created(MovieInfo movieInfo) {
+        return new MovieInfoEvent(0, MovieInfoEventType.CREATED, movieInfo.getMovieInfoId(), movieInfo, null);
+    }
+
+    public static MovieInfoEvent updated(String movieInfoId, Map<String, Object> changes) {
+        return new MovieInfoEvent(0, MovieInfoEventType.UPDATED, movieInfoId, null, changes);
+    }
+
+    public static MovieInfoEvent deleted(String movieInfoId) {
+        return new MovieInfoEvent(0, MovieInfoEventType.DELETED, movieInfoId, null, null);
+    }
+
+    public static MovieInfoEvent reloaded() {
+        return new MovieInfoEvent(0, MovieInfoEventType.RELOADED, null, null, null);
+    }
+
+    public static MovieInfoEvent heartbeat() {
+        return new MovieInfoEvent(0, MovieInfoEventType.HEARTBEAT, null, null, null);
+    }
+}
@@ -0,0 +1,11 @@
+package com.reactivespring.domain;
+
+public enum MovieInfoEventType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    // bulk import, no per document events were sent so consumers should re-read what they hold
+    RELOADED,
+    // keep-alive on idle connections, no sequence and no payload
+    HEARTBEAT
+}
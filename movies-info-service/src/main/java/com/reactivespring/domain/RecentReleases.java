@@ -0,0 +1,23 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecentReleases {
+    private LocalDate from;
+
+    private LocalDate to;
+
+    // in release date order, the first movieInfo.releases.recentMaxSize of the window only
+    private List<MovieInfo> movieInfos;
+
+    // the window holds more titles than movieInfos, the rest are read from /v1/movieinfos/releases
+    private boolean truncated;
+}
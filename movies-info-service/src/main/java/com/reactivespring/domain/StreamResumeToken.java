@@ -0,0 +1,24 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document
+public class StreamResumeToken {
+    // stream name and instance id, as movieInfo:<instanceId>
+    @Id
+    private String streamName;
+
+    // resume token of the last change stream event handed to the subscribers, as extended json
+    private String resumeToken;
+
+    private Instant updatedAt;
+}
@@ -0,0 +1,24 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Suggestion {
+    public enum Type {
+        NAME,
+        CAST
+    }
+
+    private String text;
+
+    private Type type;
+
+    // the title for NAME suggestions, null for CAST ones which usually span several titles
+    private String movieInfoId;
+
+    private long popularity;
+}
@@ -1,5 +1,7 @@
 package com.reactivespring.exceptionhandler;
 
+import com.reactivespring.util.ErrorReporter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.http.HttpStatus;
@@ -7,21 +9,30 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.stream.Collectors;
 
 @ControllerAdvice
+@RequiredArgsConstructor
 @Slf4j
 public class GlobalErrorHandler {
 
+    private final ErrorReporter errorReporter;
+
     @ExceptionHandler(WebExchangeBindException.class)
     public ResponseEntity<String> handleRequestBodyError(WebExchangeBindException ex) {
-        log.error("Exception Caught in handleRequestBodyError : {}", ex.getMessage(), ex);
         var error = ex.getBindingResult().getAllErrors().stream()
                 .map(DefaultMessageSourceResolvable::getDefaultMessage)
                 .sorted()
                 .collect(Collectors.joining(","));
-        log.error("Error is {}", error);
+        errorReporter.report(HttpStatus.BAD_REQUEST.value(), ex);
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleResponseStatusException(ResponseStatusException ex) {
+        errorReporter.report(ex.getRawStatusCode(), ex);
+        return ResponseEntity.status(ex.getStatus()).body(ex.getReason());
+    }
 }
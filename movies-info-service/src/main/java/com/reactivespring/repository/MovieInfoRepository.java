@@ -1,13 +1,16 @@
 package com.reactivespring.repository;
 
 import com.reactivespring.domain.MovieInfo;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String> {
+public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String>, MovieInfoRepositoryCustom {
 
     Flux<MovieInfo> findByYear(Integer year);
 
     Mono<MovieInfo> findByName(String name);
+
+    Flux<MovieInfo> findAllBy(Pageable pageable);
 }
@@ -0,0 +1,71 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.CatalogStat;
+import com.reactivespring.domain.MovieInfo;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads taking a fields argument only load those MovieInfo fields (plus the id and version) from Mongo,
+ * null or empty fields load the whole document.
+ */
+public interface MovieInfoRepositoryCustom {
+
+    Flux<MovieInfo> findAll(Set<String> fields);
+
+    Flux<MovieInfo> findByYear(Integer year, Set<String> fields);
+
+    Mono<MovieInfo> findById(String movieInfoId, Set<String> fields);
+
+    /**
+     * $set only the given fields, bump the version and return the updated document, or empty if there is
+     * no such MovieInfo.
+     */
+    Mono<MovieInfo> updateFields(String movieInfoId, Map<String, Object> changes);
+
+    /**
+     * Replaces the content of the MovieInfo with that id, or inserts it when there is none, bumping the version
+     * in a single findAndModify. Returns the MovieInfo as written.
+     */
+    Mono<MovieInfo> replace(MovieInfo movieInfo);
+
+    /**
+     * Removes the MovieInfo with that id in a single findAndRemove and returns it, or empty if there was none.
+     */
+    Mono<MovieInfo> deleteAndReturn(String movieInfoId);
+
+    /**
+     * Text index search over name and cast, best matches first.
+     */
+    Flux<MovieInfo> searchByText(String text, int limit, Set<String> fields);
+
+    /**
+     * Titles featuring the actor in id order, starting right after the given id (null for the first page).
+     */
+    Flux<MovieInfo> findByCast(String cast, String afterMovieInfoId, int limit, Set<String> fields);
+
+    /**
+     * Titles released between from and to (both inclusive) ordered by release date then id,
+     * starting right after the (afterReleaseDate, afterMovieInfoId) cursor when one is given.
+     */
+    Flux<MovieInfo> findByReleaseDateBetween(LocalDate from, LocalDate to,
+                                             LocalDate afterReleaseDate, String afterMovieInfoId, int limit,
+                                             Set<String> fields);
+
+    /**
+     * Unordered bulk upsert by id, bumping the version of every document written. Returns how many
+     * documents were inserted or matched.
+     */
+    Mono<Long> upsertAll(List<MovieInfo> movieInfos);
+
+    Flux<CatalogStat> countByYear();
+
+    Flux<CatalogStat> countByReleaseMonth();
+
+    Flux<CatalogStat> topCast(int limit);
+}
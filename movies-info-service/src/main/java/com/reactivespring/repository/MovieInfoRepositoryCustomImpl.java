@@ -0,0 +1,216 @@
+package com.reactivespring.repository;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.reactivespring.domain.CatalogStat;
+import com.reactivespring.domain.MovieInfo;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.limit;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.unwind;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@RequiredArgsConstructor
+public class MovieInfoRepositoryCustomImpl implements MovieInfoRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Flux<MovieInfo> findAll(Set<String> fields) {
+        return reactiveMongoTemplate.find(withFields(new Query(), fields), MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> findByYear(Integer year, Set<String> fields) {
+        return reactiveMongoTemplate.find(withFields(query(where("year").is(year)), fields), MovieInfo.class);
+    }
+
+    @Override
+    public Mono<MovieInfo> findById(String movieInfoId, Set<String> fields) {
+        return reactiveMongoTemplate.findOne(withFields(query(where("movieInfoId").is(movieInfoId)), fields),
+                MovieInfo.class);
+    }
+
+    @Override
+    public Mono<MovieInfo> updateFields(String movieInfoId, Map<String, Object> changes) {
+        var update = new Update();
+        changes.forEach(update::set);
+        update.inc("version", 1);
+
+        return reactiveMongoTemplate.findAndModify(query(where("movieInfoId").is(movieInfoId)), update,
+                FindAndModifyOptions.options().returnNew(true), MovieInfo.class);
+    }
+
+    @Override
+    public Mono<MovieInfo> replace(MovieInfo movieInfo) {
+        var update = new Update()
+                .set("name", movieInfo.getName())
+                .set("year", movieInfo.getYear())
+                .set("cast", movieInfo.getCast())
+                .set("releaseDate", movieInfo.getReleaseDate())
+                .inc("version", 1);
+
+        return reactiveMongoTemplate.findAndModify(query(where("movieInfoId").is(movieInfo.getMovieInfoId())), update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), MovieInfo.class);
+    }
+
+    @Override
+    public Mono<MovieInfo> deleteAndReturn(String movieInfoId) {
+        return reactiveMongoTemplate.findAndRemove(query(where("movieInfoId").is(movieInfoId)), MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> findByCast(String cast, String afterMovieInfoId, int limit, Set<String> fields) {
+        var criteria = where("cast").is(cast);
+        if (afterMovieInfoId != null) {
+            criteria = criteria.andOperator(after(afterMovieInfoId));
+        }
+
+        return reactiveMongoTemplate.find(withFields(query(criteria)
+                .with(Sort.by("movieInfoId"))
+                .limit(limit), fields), MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> findByReleaseDateBetween(LocalDate from, LocalDate to,
+                                                    LocalDate afterReleaseDate, String afterMovieInfoId, int limit,
+                                                    Set<String> fields) {
+        var query = withFields(releasedBetween(from, to, afterReleaseDate, afterMovieInfoId).limit(limit), fields);
+        if (fields != null && !fields.isEmpty()) {
+            // the cursor of the next page is made of it
+            query.fields().include("releaseDate");
+        }
+        return reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    /**
+     * The cursor raises the lower bound of the releaseDate range, so a deep page seeks straight into the
+     * releaseDate_id index; the $or only breaks ties between titles released on the cursor's date.
+     */
+    static Query releasedBetween(LocalDate from, LocalDate to, LocalDate afterReleaseDate, String afterMovieInfoId) {
+        if (afterReleaseDate == null) {
+            return query(where("releaseDate").gte(from).lte(to))
+                    .with(Sort.by("releaseDate", "movieInfoId"));
+        }
+
+        var lowerBound = afterReleaseDate.isAfter(from) ? afterReleaseDate : from;
+        return query(where("releaseDate").gte(lowerBound).lte(to)
+                .orOperator(where("releaseDate").gt(afterReleaseDate), after(afterMovieInfoId)))
+                .with(Sort.by("releaseDate", "movieInfoId"));
+    }
+
+    @Override
+    public Mono<Long> upsertAll(List<MovieInfo> movieInfos) {
+        var writes = movieInfos.stream()
+                .map(movieInfo -> {
+                    var document = new Document();
+                    reactiveMongoTemplate.getConverter().write(movieInfo, document);
+                    var id = document.remove("_id");
+                    document.remove("version");
+                    return new UpdateOneModel<Document>(new Document("_id", id == null ? new ObjectId() : id),
+                            new Document("$set", document).append("$inc", new Document("version", 1)),
+                            new UpdateOptions().upsert(true));
+                })
+                .collect(Collectors.toList());
+
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(writes, new BulkWriteOptions().ordered(false))))
+                .map(result -> (long) result.getMatchedCount() + result.getUpserts().size());
+    }
+
+    @Override
+    public Flux<CatalogStat> countByYear() {
+        // leading sort on the indexed field lets the group walk the year index instead of the documents
+        var aggregation = newAggregation(MovieInfo.class,
+                match(where("year").exists(true)),
+                sort(Sort.Direction.ASC, "year"),
+                group("year").count().as("count"),
+                project("count").and("key").previousOperation(),
+                sort(Sort.Direction.ASC, "key"));
+
+        return reactiveMongoTemplate.aggregate(aggregation, CatalogStat.class);
+    }
+
+    @Override
+    public Flux<CatalogStat> countByReleaseMonth() {
+        var aggregation = newAggregation(MovieInfo.class,
+                match(where("releaseDate").exists(true)),
+                sort(Sort.Direction.ASC, "releaseDate"),
+                project().and(DateOperators.DateToString.dateOf("releaseDate").toString("%Y-%m")).as("month"),
+                group("month").count().as("count"),
+                project("count").and("key").previousOperation(),
+                sort(Sort.Direction.ASC, "key"));
+
+        return reactiveMongoTemplate.aggregate(aggregation, CatalogStat.class);
+    }
+
+    @Override
+    public Flux<CatalogStat> topCast(int limit) {
+        var aggregation = newAggregation(MovieInfo.class,
+                project("cast"),
+                unwind("cast"),
+                group("cast").count().as("count"),
+                sort(Sort.Direction.DESC, "count").and(Sort.Direction.ASC, "_id"),
+                limit(limit),
+                project("count").and("key").previousOperation());
+
+        return reactiveMongoTemplate.aggregate(aggregation, CatalogStat.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> searchByText(String text, int limit, Set<String> fields) {
+        var query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                .sortByScore()
+                .limit(limit);
+
+        return reactiveMongoTemplate.find(withFields(query, fields), MovieInfo.class);
+    }
+
+    private static Query withFields(Query query, Set<String> fields) {
+        if (fields != null && !fields.isEmpty()) {
+            // the version always comes along, it is what partial reads are tagged with
+            query.fields().include(fields.toArray(String[]::new)).include("version");
+        }
+        return query;
+    }
+
+    /**
+     * _id after the cursor. Ids are either ObjectIds (generated) or plain strings (given by the caller),
+     * and mongo orders every string before every ObjectId, so a string cursor also lets all ObjectIds through.
+     */
+    static Criteria after(String movieInfoId) {
+        if (ObjectId.isValid(movieInfoId)) {
+            return where("movieInfoId").gt(movieInfoId);
+        }
+        return new Criteria().orOperator(
+                where("movieInfoId").gt(movieInfoId),
+                where("movieInfoId").type(JsonSchemaObject.Type.OBJECT_ID));
+    }
+}
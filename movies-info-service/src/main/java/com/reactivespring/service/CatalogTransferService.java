@@ -0,0 +1,178 @@
+package com.reactivespring.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.domain.ImportResult;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.util.DataBufferInputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Whole catalog backup and restore as gzip NDJSON, one MovieInfo per line.
+ * Both directions are streamed, only a batch of documents and a compression buffer are held at a time.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogTransferService {
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final MovieInfoRepository movieInfoRepository;
+    private final MovieInfoService movieInfoService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${movieInfo.transfer.batchSize:1000}")
+    private int batchSize;
+
+    public Flux<byte[]> exportMovieInfos() {
+        return Flux.using(GzipChunks::new,
+                gzip -> movieInfoRepository.findAll()
+                        .map(this::toLine)
+                        .buffer(batchSize)
+                        .map(gzip::write)
+                        .concatWith(Mono.fromSupplier(gzip::finish))
+                        .filter(chunk -> chunk.length > 0),
+                GzipChunks::close);
+    }
+
+    /**
+     * Upserts every valid line by id in unordered batches. The next batch is only read from the
+     * request once the previous one is written.
+     */
+    public Mono<ImportResult> importMovieInfos(Flux<DataBuffer> body) {
+        var rejected = new AtomicLong();
+
+        return Flux.using(() -> new BufferedReader(new InputStreamReader(
+                                new GZIPInputStream(new DataBufferInputStream(body), GZIP_BUFFER_SIZE),
+                                StandardCharsets.UTF_8)),
+                        reader -> Flux.<String>generate(sink -> {
+                            try {
+                                var line = reader.readLine();
+                                if (line == null) {
+                                    sink.complete();
+                                } else {
+                                    sink.next(line);
+                                }
+                            } catch (IOException ex) {
+                                sink.error(ex);
+                            }
+                        }),
+                        reader -> {
+                            try {
+                                reader.close();
+                            } catch (IOException ex) {
+                                log.warn("Closing the import stream failed : {}", ex.getMessage());
+                            }
+                        })
+                // reading and inflating block, the rest of the pipeline pulls from there
+                .subscribeOn(Schedulers.boundedElastic())
+                .filter(line -> !line.isBlank())
+                .<MovieInfo>handle((line, sink) -> {
+                    var movieInfo = fromLine(line);
+                    if (movieInfo == null) {
+                        rejected.incrementAndGet();
+                    } else {
+                        sink.next(movieInfo);
+                    }
+                })
+                .buffer(batchSize)
+                // one batch in flight and the next one filling, the default prefetch would buffer 32 batches ahead
+                .concatMap(movieInfoRepository::upsertAll, 1)
+                .reduce(0L, Long::sum)
+                .map(imported -> new ImportResult(imported, rejected.get()))
+                .doOnNext(result -> {
+                    log.info("MovieInfo import done : {} imported, {} rejected",
+                            result.getImported(), result.getRejected());
+                    movieInfoService.catalogReloaded();
+                });
+    }
+
+    private byte[] toLine(MovieInfo movieInfo) {
+        try {
+            var json = objectMapper.writeValueAsBytes(movieInfo);
+            var line = new byte[json.length + 1];
+            System.arraycopy(json, 0, line, 0, json.length);
+            line[json.length] = '\n';
+            return line;
+        } catch (JsonProcessingException ex) {
+            throw Exceptions.propagate(ex);
+        }
+    }
+
+    private MovieInfo fromLine(String line) {
+        try {
+            var movieInfo = objectMapper.readValue(line, MovieInfo.class);
+            return validator.validate(movieInfo).isEmpty() ? movieInfo : null;
+        } catch (JsonProcessingException ex) {
+            log.debug("Rejected import line : {}", ex.getOriginalMessage());
+            return null;
+        }
+    }
+
+    /**
+     * GZIPOutputStream over an in memory buffer that is handed out and reset after every batch.
+     */
+    private static final class GzipChunks {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(GZIP_BUFFER_SIZE);
+        private final GZIPOutputStream gzip;
+
+        private GzipChunks() throws IOException {
+            gzip = new GZIPOutputStream(bytes, GZIP_BUFFER_SIZE);
+        }
+
+        private byte[] write(List<byte[]> lines) {
+            try {
+                for (var line : lines) {
+                    gzip.write(line);
+                }
+                return drain();
+            } catch (IOException ex) {
+                throw Exceptions.propagate(ex);
+            }
+        }
+
+        private byte[] finish() {
+            try {
+                gzip.finish();
+                return drain();
+            } catch (IOException ex) {
+                throw Exceptions.propagate(ex);
+            }
+        }
+
+        private byte[] drain() {
+            var chunk = bytes.toByteArray();
+            bytes.reset();
+            return chunk;
+        }
+
+        private void close() {
+            try {
+                gzip.close();
+            } catch (IOException ex) {
+                log.warn("Closing the export stream failed : {}", ex.getMessage());
+            }
+        }
+    }
+}
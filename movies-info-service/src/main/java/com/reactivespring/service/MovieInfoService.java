@@ -1,45 +1,316 @@
 package com.reactivespring.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.domain.MovieInfoEventType;
+import com.reactivespring.domain.Suggestion;
 import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.stream.BoundedFanOut;
+import com.reactivespring.stream.MovieInfoStream;
+import com.reactivespring.suggest.MovieInfoSuggestIndex;
+import com.reactivespring.util.WriteCoalescer;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class MovieInfoService {
+    private static final Set<String> PROJECTABLE_FIELDS = Set.of("movieInfoId", "name", "year", "cast", "releaseDate");
+
     private final MovieInfoRepository movieInfoRepository;
+    private final Cache<String, MovieInfo> movieInfoCache;
+    private final MovieInfoStream movieInfoStream;
+    private final BoundedFanOut movieInfoStreamFanOut;
+    private final MovieInfoSuggestIndex movieInfoSuggestIndex;
+    private final WriteCoalescer<MovieInfo, MovieInfo> movieInfoUpdateCoalescer;
+
+    @Value("${movieInfo.cache.warmUpSize:0}")
+    private int warmUpSize;
+
+    private Disposable changes;
+
+    /**
+     * Keeps the cache and the suggest index in line with the catalog changes of every instance : the movieInfo
+     * stream carries those of the others as well in change-stream mode. The changes of this instance were applied
+     * already by the write path, applying them again is harmless.
+     */
+    @PostConstruct
+    public void subscribeToChanges() {
+        changes = movieInfoStream.asFlux()
+                .flatMap(event -> applied(event)
+                        .onErrorResume(ex -> {
+                            log.warn("{} event of movieInfo {} not applied : {}", event.getType(),
+                                    event.getMovieInfoId(), ex.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
 
+    @PreDestroy
+    public void unsubscribe() {
+        changes.dispose();
+    }
+
+    private Mono<Void> applied(MovieInfoEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+                cache(event.getMovieInfo());
+                movieInfoSuggestIndex.index(event.getMovieInfo());
+                return Mono.empty();
+            case UPDATED:
+                // the cached copy carries the previous version, the next read loads the new one
+                movieInfoCache.invalidate(event.getMovieInfoId());
+                if (!event.getChanges().containsKey("name") && !event.getChanges().containsKey("cast")) {
+                    return Mono.empty();
+                }
+                return movieInfoRepository.findById(event.getMovieInfoId())
+                        .doOnNext(movieInfoSuggestIndex::index)
+                        .then();
+            case DELETED:
+                movieInfoCache.invalidate(event.getMovieInfoId());
+                movieInfoSuggestIndex.remove(event.getMovieInfoId());
+                return Mono.empty();
+            case RELOADED:
+                movieInfoCache.invalidateAll();
+                buildSuggestIndex();
+                return Mono.empty();
+            default:
+                return Mono.empty();
+        }
+    }
+
+    /**
+     * A MovieInfo that comes with its id replaces the one stored under that id, if any. save() would insert it,
+     * since a versioned document without a version counts as new, and fail on a taken id.
+     */
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
-        return movieInfoRepository.save(movieInfo);
+        var saved = movieInfo.getMovieInfoId() == null
+                ? movieInfoRepository.save(movieInfo)
+                : movieInfoRepository.replace(movieInfo);
+        return saved
+                .doOnNext(this::cache)
+                .doOnNext(movieInfoSuggestIndex::index)
+                .doOnNext(savedInfo -> movieInfoStream.publish(MovieInfoEvent.created(savedInfo)));
     }
 
-    public Flux<MovieInfo> getAllMovieInfos() {
-        return movieInfoRepository.findAll();
+    public Flux<MovieInfo> getAllMovieInfos(Set<String> fields) {
+        return checkFields(fields).thenMany(movieInfoRepository.findAll(fields));
     }
 
-    public Mono<MovieInfo> getMovieInfoById(String id) {
-        return movieInfoRepository.findById(id);
+    /**
+     * Partial reads are served from the cached document when there is one, otherwise they are
+     * loaded with a projection and not cached.
+     */
+    public Mono<MovieInfo> getMovieInfoById(String id, Set<String> fields) {
+        Mono<MovieInfo> movieInfoMono;
+        if (fields == null || fields.isEmpty()) {
+            movieInfoMono = Mono.justOrEmpty(movieInfoCache.getIfPresent(id))
+                    .switchIfEmpty(Mono.defer(() -> movieInfoRepository.findById(id)
+                            .doOnNext(this::cache)));
+        } else {
+            movieInfoMono = checkFields(fields)
+                    .then(Mono.justOrEmpty(movieInfoCache.getIfPresent(id)))
+                    .map(movieInfo -> project(movieInfo, fields))
+                    .switchIfEmpty(Mono.defer(() -> movieInfoRepository.findById(id, fields)));
+        }
+        return movieInfoMono
+                .doOnNext(movieInfo -> movieInfoSuggestIndex.recordView(id));
     }
 
+    /**
+     * PUTs to the same id within movieInfo.update.coalesceWindow end up as one write of the last one,
+     * every caller gets the resulting document.
+     */
     public Mono<MovieInfo> updateMovieInfo(MovieInfo updatedMovieInfo, String id) {
+        return movieInfoUpdateCoalescer.submit(id, updatedMovieInfo, this::writeUpdate);
+    }
+
+    private Mono<MovieInfo> writeUpdate(String id, MovieInfo updatedMovieInfo) {
         return movieInfoRepository.findById(id)
                 .flatMap(movieInfo -> {
-                    movieInfo.setCast(updatedMovieInfo.getCast());
-                    movieInfo.setName(updatedMovieInfo.getName());
-                    movieInfo.setReleaseDate(updatedMovieInfo.getReleaseDate());
-                    movieInfo.setYear(updatedMovieInfo.getYear());
-                    return movieInfoRepository.save(movieInfo);
+                    var changes = changedFields(movieInfo, updatedMovieInfo);
+                    if (changes.isEmpty()) {
+                        return Mono.just(movieInfo);
+                    }
+                    return movieInfoRepository.updateFields(id, changes)
+                            .doOnNext(movieInfoSuggestIndex::index)
+                            .doOnNext(savedInfo -> movieInfoStream.publish(MovieInfoEvent.updated(id, changes)));
+                })
+                .doOnNext(this::cache);
+    }
+
+    /**
+     * Returns the removed MovieInfo, or empty when there was none, in which case nothing is invalidated or published.
+     */
+    public Mono<MovieInfo> deleteMovieInfo(String id) {
+        return movieInfoRepository.deleteAndReturn(id)
+                .doOnNext(deleted -> {
+                    movieInfoCache.invalidate(id);
+                    movieInfoSuggestIndex.remove(id);
+                    movieInfoStream.publish(MovieInfoEvent.deleted(id));
                 });
     }
 
-    public Mono<Void> deleteMovieInfo(String id) {
-        return movieInfoRepository.deleteById(id);
+    public Flux<MovieInfo> getMovieInfoByYear(Integer year, Set<String> fields) {
+        return checkFields(fields).thenMany(movieInfoRepository.findByYear(year, fields));
+    }
+
+    /**
+     * One page of the titles featuring the actor, in id order. The cursor is the id of the last title
+     * of the previous page, so every page is a seek on the cast index however deep it is.
+     */
+    public Flux<MovieInfo> getMovieInfoByCast(String cast, String after, int limit, Set<String> fields) {
+        return checkFields(fields).thenMany(movieInfoRepository.findByCast(cast, after, limit, fields));
+    }
+
+    /**
+     * One page of the titles released between from and to, in release date order. The cursor is
+     * "releaseDate_id" of the last title of the previous page, see {@link #releaseCursor(MovieInfo)}.
+     */
+    public Flux<MovieInfo> getMovieInfoByReleaseDate(LocalDate from, LocalDate to, String after, int limit,
+                                                     Set<String> fields) {
+        if (after == null) {
+            return checkFields(fields).thenMany(movieInfoRepository.findByReleaseDateBetween(from, to,
+                    null, null, limit, fields));
+        }
+
+        var separator = after.indexOf('_');
+        try {
+            var afterReleaseDate = LocalDate.parse(separator < 0 ? after : after.substring(0, separator));
+            var afterMovieInfoId = separator < 0 ? "" : after.substring(separator + 1);
+            return checkFields(fields).thenMany(movieInfoRepository.findByReleaseDateBetween(from, to,
+                    afterReleaseDate, afterMovieInfoId, limit, fields));
+        } catch (DateTimeParseException ex) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor : " + after));
+        }
+    }
+
+    public static String releaseCursor(MovieInfo movieInfo) {
+        return movieInfo.getReleaseDate() + "_" + movieInfo.getMovieInfoId();
+    }
+
+    public Flux<MovieInfo> searchMovieInfos(String text, int limit, Set<String> fields) {
+        return checkFields(fields).thenMany(movieInfoRepository.searchByText(text, limit, fields));
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return movieInfoSuggestIndex.suggest(prefix, limit);
+    }
+
+    public Flux<MovieInfo> getMovieInfoStream() {
+        return movieInfoStreamFanOut.subscribe(movieInfoStream.asFlux()
+                .filter(event -> event.getType() == MovieInfoEventType.CREATED)
+                .map(MovieInfoEvent::getMovieInfo));
+    }
+
+    public Flux<MovieInfoEvent> getMovieInfoEvents() {
+        return movieInfoStreamFanOut.subscribe(movieInfoStream.asFlux(), MovieInfoEvent::heartbeat);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpCache() {
+        if (warmUpSize <= 0) {
+            return;
+        }
+
+        // "top" titles are the most recent ones, that is what the home page and the rails ask for first
+        movieInfoRepository.findAllBy(PageRequest.of(0, warmUpSize, Sort.by(Sort.Direction.DESC, "year")))
+                .doOnNext(this::cache)
+                .count()
+                .subscribe(
+                        count -> log.info("MovieInfo cache warmed up with {} entries", count),
+                        ex -> log.warn("MovieInfo cache warm up failed : {}", ex.getMessage())
+                );
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSuggestIndex() {
+        movieInfoRepository.findAll()
+                .doOnNext(movieInfoSuggestIndex::index)
+                .count()
+                .subscribe(
+                        count -> log.info("MovieInfo suggest index built with {} titles", count),
+                        ex -> log.warn("MovieInfo suggest index build failed : {}", ex.getMessage())
+                );
+    }
+
+    /**
+     * After a bulk import that went around this service : let every instance know, each one drops its cached
+     * copies and re-indexes when the RELOADED event reaches it.
+     */
+    public void catalogReloaded() {
+        movieInfoCache.invalidateAll();
+        movieInfoStream.publish(MovieInfoEvent.reloaded());
+    }
+
+    private static Map<String, Object> changedFields(MovieInfo existing, MovieInfo updated) {
+        var changes = new LinkedHashMap<String, Object>();
+        if (!Objects.equals(existing.getName(), updated.getName())) {
+            changes.put("name", updated.getName());
+        }
+        if (!Objects.equals(existing.getYear(), updated.getYear())) {
+            changes.put("year", updated.getYear());
+        }
+        if (!Objects.equals(existing.getCast(), updated.getCast())) {
+            changes.put("cast", updated.getCast());
+        }
+        if (!Objects.equals(existing.getReleaseDate(), updated.getReleaseDate())) {
+            changes.put("releaseDate", updated.getReleaseDate());
+        }
+        return changes;
+    }
+
+    private static Mono<Void> checkFields(Set<String> fields) {
+        if (fields == null || PROJECTABLE_FIELDS.containsAll(fields)) {
+            return Mono.empty();
+        }
+        var unknown = fields.stream()
+                .filter(field -> !PROJECTABLE_FIELDS.contains(field))
+                .sorted()
+                .collect(Collectors.joining(","));
+        return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown fields : " + unknown));
+    }
+
+    private static MovieInfo project(MovieInfo movieInfo, Set<String> fields) {
+        return new MovieInfo(movieInfo.getMovieInfoId(),
+                fields.contains("name") ? movieInfo.getName() : null,
+                fields.contains("year") ? movieInfo.getYear() : null,
+                fields.contains("cast") ? movieInfo.getCast() : null,
+                fields.contains("releaseDate") ? movieInfo.getReleaseDate() : null,
+                movieInfo.getVersion());
     }
 
-    public Flux<MovieInfo> getMovieInfoByYear(Integer year) {
-        return movieInfoRepository.findByYear(year);
+    private void cache(MovieInfo movieInfo) {
+        // most titles share a handful of cast names, so keep a single copy of each of them on the heap
+        if (movieInfo.getCast() != null) {
+            movieInfo.setCast(movieInfo.getCast().stream()
+                    .map(castName -> castName == null ? null : castName.intern())
+                    .collect(Collectors.toList()));
+        }
+        movieInfoCache.put(movieInfo.getMovieInfoId(), movieInfo);
     }
 }
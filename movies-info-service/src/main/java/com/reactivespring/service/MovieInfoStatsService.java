@@ -0,0 +1,71 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.CatalogStat;
+import com.reactivespring.domain.MovieInfoEventType;
+import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.stream.MovieInfoStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Catalog statistics computed by aggregation pipelines and kept until the catalog changes.
+ * Any event on the movieInfo stream drops them; the TTL covers writes this instance cannot see.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MovieInfoStatsService {
+    private final MovieInfoRepository movieInfoRepository;
+    private final MovieInfoStream movieInfoStream;
+
+    private final Map<String, Mono<List<CatalogStat>>> stats = new ConcurrentHashMap<>();
+
+    @Value("${movieInfo.stats.ttl:5m}")
+    private Duration ttl;
+
+    private Disposable invalidation;
+
+    @PostConstruct
+    public void subscribeToChanges() {
+        invalidation = movieInfoStream.asFlux()
+                .filter(event -> event.getType() != MovieInfoEventType.HEARTBEAT)
+                .subscribe(event -> stats.clear());
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        invalidation.dispose();
+    }
+
+    public Mono<List<CatalogStat>> countByYear() {
+        return cached("years", movieInfoRepository::countByYear);
+    }
+
+    public Mono<List<CatalogStat>> countByReleaseMonth() {
+        return cached("releaseMonths", movieInfoRepository::countByReleaseMonth);
+    }
+
+    public Mono<List<CatalogStat>> topCast(int limit) {
+        return cached("topCast:" + limit, () -> movieInfoRepository.topCast(limit));
+    }
+
+    private Mono<List<CatalogStat>> cached(String key, Supplier<Flux<CatalogStat>> aggregation) {
+        return stats.computeIfAbsent(key, k -> aggregation.get()
+                .collectList()
+                .doOnError(ex -> stats.remove(k))
+                .cache(list -> ttl, ex -> Duration.ZERO, () -> Duration.ZERO));
+    }
+}
@@ -0,0 +1,81 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfoEventType;
+import com.reactivespring.domain.RecentReleases;
+import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.stream.MovieInfoStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * The "last N days" release window behind the new-releases rail, held in memory.
+ * Reloaded when a title is added, changed or removed, and when the window moves to a new day.
+ * Only its first movieInfo.releases.recentMaxSize titles are held, a longer window comes back truncated.
+ * A failed load is not kept, the next read tries again.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecentReleasesCache {
+    // until the window is invalidated or moves to the next day
+    private static final Duration FOREVER = Duration.ofMillis(Long.MAX_VALUE);
+
+    private final MovieInfoRepository movieInfoRepository;
+    private final MovieInfoStream movieInfoStream;
+
+    @Value("${movieInfo.releases.recentDays:30}")
+    private int recentDays;
+
+    @Value("${movieInfo.releases.recentMaxSize:1000}")
+    private int recentMaxSize;
+
+    Clock clock = Clock.systemDefaultZone();
+
+    private Disposable invalidation;
+    private volatile Window window;
+
+    @PostConstruct
+    public void subscribeToChanges() {
+        invalidation = movieInfoStream.asFlux()
+                .filter(event -> event.getType() != MovieInfoEventType.HEARTBEAT)
+                .subscribe(event -> window = null);
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        invalidation.dispose();
+    }
+
+    public Mono<RecentReleases> recentReleases() {
+        var today = LocalDate.now(clock);
+        var current = window;
+        if (current == null || !current.day.equals(today)) {
+            var from = today.minusDays(recentDays);
+            current = new Window(today, movieInfoRepository
+                    .findByReleaseDateBetween(from, today, null, null, recentMaxSize, null)
+                    .collectList()
+                    .map(movieInfos -> new RecentReleases(from, today, movieInfos, movieInfos.size() >= recentMaxSize))
+                    .cache(recent -> FOREVER, ex -> Duration.ZERO, () -> Duration.ZERO));
+            window = current;
+        }
+        return current.recentReleases;
+    }
+
+    private static final class Window {
+        private final LocalDate day;
+        private final Mono<RecentReleases> recentReleases;
+
+        private Window(LocalDate day, Mono<RecentReleases> recentReleases) {
+            this.day = day;
+            this.recentReleases = recentReleases;
+        }
+    }
+}
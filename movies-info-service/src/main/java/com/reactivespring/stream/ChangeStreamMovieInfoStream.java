@@ -0,0 +1,192 @@
+package com.reactivespring.stream;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.domain.MovieInfoEventType;
+import com.reactivespring.domain.StreamResumeToken;
+import com.reactivespring.repository.StreamResumeTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Cluster wide stream, fed by a change stream on the movieInfo collection (requires a replica set).
+ * One change stream per instance is shared by all its subscribers, and the resume token of the last
+ * event is persisted under the instance id so a restarted instance carries on from where it stopped.
+ * Resuming is best-effort: a token older than the oplog window is dropped and the stream restarts from now.
+ * Writes show up by themselves; RELOADED, which no document write stands for, is published by stamping a
+ * document of the catalogReloads collection that the same change stream watches.
+ */
+@Component
+@ConditionalOnProperty(name = "movieInfo.stream.source", havingValue = "change-stream")
+@RequiredArgsConstructor
+@Slf4j
+public class ChangeStreamMovieInfoStream implements MovieInfoStream {
+    private static final String STREAM_NAME = "movieInfo";
+    private static final String RELOADS = "catalogReloads";
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final List<String> FIELDS = List.of("name", "year", "cast", "releaseDate");
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final StreamResumeTokenRepository streamResumeTokenRepository;
+
+    private final Sinks.Many<MovieInfoEvent> moviesInfoSink = Sinks.many().replay().latest();
+
+    // key of the persisted resume token, each instance resumes its own change stream
+    @Value("${movieInfo.stream.instanceId:${HOSTNAME:local}}")
+    private String instanceId;
+
+    private Disposable changeStreamSubscription;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        var tokenKey = STREAM_NAME + ":" + instanceId;
+        changeStreamSubscription = streamResumeTokenRepository.findById(tokenKey)
+                .map(streamResumeToken -> Optional.of(BsonDocument.parse(streamResumeToken.getResumeToken())))
+                .defaultIfEmpty(Optional.empty())
+                .flatMapMany(this::watch)
+                .concatMap(event -> saveResumeToken(tokenKey, event).thenReturn(toMovieInfoEvent(event)))
+                .onErrorResume(this::isHistoryLost, ex -> {
+                    log.warn("Resume token for {} is no longer in the oplog, restarting from now", tokenKey);
+                    return streamResumeTokenRepository.deleteById(tokenKey)
+                            .then(Mono.error(ex));
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(retrySignal -> log.warn("Change stream on {} failed, resuming : {}",
+                                STREAM_NAME, retrySignal.failure().getMessage())))
+                .subscribe(moviesInfoSink::tryEmitNext);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (changeStreamSubscription != null) {
+            changeStreamSubscription.dispose();
+        }
+    }
+
+    @Override
+    public void publish(MovieInfoEvent event) {
+        // a write shows up through the change stream, on every instance
+        if (event.getType() != MovieInfoEventType.RELOADED) {
+            return;
+        }
+        reactiveMongoTemplate.upsert(query(where("_id").is(STREAM_NAME)), Update.update("reloadedAt", Instant.now()),
+                        RELOADS)
+                .subscribe(null, ex -> log.warn("{} reload not published : {}", STREAM_NAME, ex.getMessage()));
+    }
+
+    @Override
+    public Flux<MovieInfoEvent> asFlux() {
+        return moviesInfoSink.asFlux();
+    }
+
+    private Flux<ChangeStreamEvent<MovieInfo>> watch(Optional<BsonDocument> resumeToken) {
+        var options = ChangeStreamOptions.builder()
+                .filter(newAggregation(match(where("ns.coll").in(collectionName(), RELOADS)
+                        .and("operationType").in("insert", "update", "replace", "delete"))))
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+        resumeToken.ifPresent(options::resumeAfter);
+
+        // the whole database, narrowed down to the two collections by the filter
+        return reactiveMongoTemplate.changeStream(null, null, options.build(), MovieInfo.class);
+    }
+
+    private String collectionName() {
+        return reactiveMongoTemplate.getCollectionName(MovieInfo.class);
+    }
+
+    private MovieInfoEvent toMovieInfoEvent(ChangeStreamEvent<MovieInfo> event) {
+        var raw = event.getRaw();
+        MovieInfoEvent movieInfoEvent;
+        if (RELOADS.equals(event.getCollectionName())) {
+            movieInfoEvent = MovieInfoEvent.reloaded();
+            movieInfoEvent.setSequence(event.getBsonTimestamp().getValue());
+            return movieInfoEvent;
+        }
+        switch (event.getOperationType()) {
+            case INSERT:
+                movieInfoEvent = MovieInfoEvent.created(event.getBody());
+                break;
+            case UPDATE:
+                // updatedFields holds dotted paths such as cast.1, the event carries the whole top level field
+                var changedFields = new LinkedHashMap<String, Object>();
+                raw.getUpdateDescription().getUpdatedFields().keySet()
+                        .forEach(path -> changedFields.put(path.split("\\.")[0], null));
+                var removedFields = raw.getUpdateDescription().getRemovedFields();
+                if (removedFields != null) {
+                    removedFields.forEach(path -> changedFields.put(path.split("\\.")[0], null));
+                }
+                movieInfoEvent = MovieInfoEvent.updated(idOf(raw.getDocumentKey().get("_id")),
+                        valuesOf(event.getBody(), changedFields.keySet()));
+                break;
+            case REPLACE:
+                // no pre-image to diff against, so every field counts as changed
+                movieInfoEvent = MovieInfoEvent.updated(event.getBody().getMovieInfoId(),
+                        valuesOf(event.getBody(), FIELDS));
+                break;
+            default:
+                movieInfoEvent = MovieInfoEvent.deleted(idOf(raw.getDocumentKey().get("_id")));
+        }
+
+        // cluster time is (seconds << 32 | increment), it only goes up across every instance of the service
+        movieInfoEvent.setSequence(event.getBsonTimestamp().getValue());
+        return movieInfoEvent;
+    }
+
+    private static Map<String, Object> valuesOf(MovieInfo movieInfo, Iterable<String> fields) {
+        var values = new LinkedHashMap<String, Object>();
+        var accessor = movieInfo == null ? null : PropertyAccessorFactory.forBeanPropertyAccess(movieInfo);
+        for (String field : fields) {
+            if (FIELDS.contains(field)) {
+                values.put(field, accessor == null ? null : accessor.getPropertyValue(field));
+            }
+        }
+        return values;
+    }
+
+    private static String idOf(BsonValue id) {
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+
+    private Mono<StreamResumeToken> saveResumeToken(String tokenKey, ChangeStreamEvent<MovieInfo> event) {
+        var resumeToken = event.getResumeToken().asDocument().toJson();
+        return streamResumeTokenRepository.save(new StreamResumeToken(tokenKey, resumeToken, Instant.now()));
+    }
+
+    private boolean isHistoryLost(Throwable ex) {
+        return ex instanceof MongoCommandException
+                && ((MongoCommandException) ex).getErrorCode() == CHANGE_STREAM_HISTORY_LOST;
+    }
+}
@@ -0,0 +1,19 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.MovieInfoEvent;
+import reactor.core.publisher.Flux;
+
+/**
+ * Source of the movieInfo live stream served on /v1/movieinfos/stream.
+ * The implementation is selected with movieInfo.stream.source (local | change-stream).
+ */
+public interface MovieInfoStream {
+
+    /**
+     * Called by the write path once a change has been written by this instance.
+     * The stream assigns the sequence number.
+     */
+    void publish(MovieInfoEvent event);
+
+    Flux<MovieInfoEvent> asFlux();
+}
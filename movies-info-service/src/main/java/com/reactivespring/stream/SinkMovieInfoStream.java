@@ -0,0 +1,41 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.util.SerializedEmitter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Per-JVM stream, only sees the changes written through this instance.
+ */
+@Component
+@ConditionalOnProperty(name = "movieInfo.stream.source", havingValue = "local", matchIfMissing = true)
+public class SinkMovieInfoStream implements MovieInfoStream {
+
+    private final Sinks.Many<MovieInfoEvent> moviesInfoSink = Sinks.many().replay().latest();
+    private final SerializedEmitter<MovieInfoEvent> emitter;
+
+    // seeded with the start time so the sequence keeps increasing across restarts, only the draining thread of the
+    // emitter touches it
+    private long sequence = System.currentTimeMillis() * 1000;
+
+    public SinkMovieInfoStream(MeterRegistry meterRegistry) {
+        this.emitter = new SerializedEmitter<>("movieinfo.stream", event -> {
+            event.setSequence(++sequence);
+            return moviesInfoSink.tryEmitNext(event);
+        }, meterRegistry);
+    }
+
+    @Override
+    public void publish(MovieInfoEvent event) {
+        emitter.emit(event);
+    }
+
+    @Override
+    public Flux<MovieInfoEvent> asFlux() {
+        return moviesInfoSink.asFlux();
+    }
+}
@@ -0,0 +1,309 @@
+package com.reactivespring.suggest;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Suggestion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory prefix index over MovieInfo names and cast names for search-as-you-type.
+ * Every word of a name is a starting point, so "knight" suggests "The Dark Knight".
+ * A prefix that matched more than movieInfo.suggest.scanLimit keys at the last refresh is answered from the top
+ * suggestions kept for it, any other one from a range scan of at most scanLimit keys of a sorted map, so a read
+ * costs the same however many titles match. Writes, which are rare, are serialized.
+ * Popularity is the number of times a title was fetched by id on this instance, taken into the ranking every
+ * movieInfo.suggest.refreshInterval along with the top suggestions of the busy prefixes.
+ */
+@Component
+@Slf4j
+public class MovieInfoSuggestIndex {
+    public static final int MAX_LIMIT = 50;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final char SEPARATOR = '\u0000';
+    // lowest ranked first, the reverse of the order the suggestions are returned in
+    private static final Comparator<Suggestion> RANKING = Comparator.comparingLong(Suggestion::getPopularity)
+            .thenComparing(Suggestion::getText, Comparator.reverseOrder());
+
+    private final NavigableMap<String, Entry> entriesByKey = new ConcurrentSkipListMap<>();
+    private final Map<String, List<String>> keysByMovieInfoId = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> views = new ConcurrentHashMap<>();
+    private final int scanLimit;
+    private final Duration refreshInterval;
+
+    // best first, MAX_LIMIT of them, for the prefixes matching more than scanLimit keys
+    private volatile Map<String, List<Entry>> topByPrefix = Map.of();
+    private volatile boolean changed;
+    private Disposable refreshes;
+
+    public MovieInfoSuggestIndex(@Value("${movieInfo.suggest.scanLimit:256}") int scanLimit,
+                                 @Value("${movieInfo.suggest.refreshInterval:10s}") Duration refreshInterval) {
+        this.scanLimit = scanLimit;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        refreshes = Flux.interval(refreshInterval, Schedulers.boundedElastic())
+                .filter(tick -> changed)
+                .subscribe(tick -> refresh());
+    }
+
+    @PreDestroy
+    public void stop() {
+        refreshes.dispose();
+    }
+
+    public synchronized void index(MovieInfo movieInfo) {
+        var movieInfoId = movieInfo.getMovieInfoId();
+        unindex(movieInfoId);
+
+        var keys = new ArrayList<String>();
+        add(keys, movieInfo.getName(), Suggestion.Type.NAME, movieInfoId);
+        if (movieInfo.getCast() != null) {
+            movieInfo.getCast().forEach(castName -> add(keys, castName, Suggestion.Type.CAST, movieInfoId));
+        }
+        keysByMovieInfoId.put(movieInfoId, keys);
+        changed = true;
+    }
+
+    public synchronized void remove(String movieInfoId) {
+        unindex(movieInfoId);
+        views.remove(movieInfoId);
+        changed = true;
+    }
+
+    private void unindex(String movieInfoId) {
+        var keys = keysByMovieInfoId.remove(movieInfoId);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            var entry = entriesByKey.get(key);
+            if (entry != null) {
+                entry.movieInfoIds.remove(movieInfoId);
+                if (entry.movieInfoIds.isEmpty()) {
+                    entriesByKey.remove(key);
+                }
+            }
+        }
+    }
+
+    public void recordView(String movieInfoId) {
+        views.computeIfAbsent(movieInfoId, id -> new LongAdder()).increment();
+        changed = true;
+    }
+
+    /**
+     * Kept top suggestions whose titles were removed since the last refresh are left out, so until the next one a
+     * busy prefix can answer with fewer than limit.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        var normalizedPrefix = normalize(prefix);
+        if (normalizedPrefix.isEmpty()) {
+            return List.of();
+        }
+
+        var top = topByPrefix.get(normalizedPrefix);
+        if (top != null) {
+            return top.stream()
+                    .map(Entry::toSuggestion)
+                    .filter(Objects::nonNull)
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        var range = entriesByKey.subMap(normalizedPrefix, true, normalizedPrefix + Character.MAX_VALUE, false);
+        var scanned = range.values().stream().limit(scanLimit).collect(Collectors.toList());
+        return ranked(scanned, limit).stream()
+                .map(ranked -> ranked.suggestion)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Takes the views into the ranking and keeps the top suggestions of every prefix that matches more than
+     * scanLimit keys. Runs every refreshInterval when anything changed.
+     */
+    public void refresh() {
+        changed = false;
+        var start = System.nanoTime();
+
+        var popularity = new IdentityHashMap<Entry, Long>();
+        var keys = new ArrayList<String>(entriesByKey.size());
+        var entries = new ArrayList<Entry>(entriesByKey.size());
+        entriesByKey.forEach((key, entry) -> {
+            keys.add(key);
+            entries.add(entry);
+            popularity.computeIfAbsent(entry, Entry::viewCount);
+        });
+        popularity.forEach((entry, viewCount) -> entry.popularity = viewCount);
+
+        var tops = new HashMap<String, List<Entry>>();
+        collectTops(keys, entries, 0, keys.size(), 0, tops);
+        topByPrefix = tops;
+        log.debug("MovieInfo suggest index refreshed in {} ms, {} busy prefixes",
+                Duration.ofNanos(System.nanoTime() - start).toMillis(), tops.size());
+    }
+
+    /**
+     * keys[from, to) share their first depth characters. Groups them by the next one and keeps the top of the groups
+     * larger than scanLimit, then does the same within them.
+     */
+    private void collectTops(List<String> keys, List<Entry> entries, int from, int to, int depth,
+                             Map<String, List<Entry>> tops) {
+        var i = from;
+        while (i < to) {
+            var key = keys.get(i);
+            var next = key.charAt(depth);
+            if (next == SEPARATOR) {
+                i++;
+                continue;
+            }
+            var j = i + 1;
+            while (j < to && keys.get(j).charAt(depth) == next) {
+                j++;
+            }
+            if (j - i > scanLimit) {
+                tops.put(key.substring(0, depth + 1), ranked(entries.subList(i, j), MAX_LIMIT).stream()
+                        .map(ranked -> ranked.entry)
+                        .collect(Collectors.toList()));
+                collectTops(keys, entries, i, j, depth + 1, tops);
+            }
+            i = j;
+        }
+    }
+
+    private static List<Ranked> ranked(List<Entry> entries, int limit) {
+        var top = new PriorityQueue<Ranked>(Comparator.comparing(ranked -> ranked.suggestion, RANKING));
+        // one entry is reachable from several keys (one per word)
+        var seen = Collections.newSetFromMap(new IdentityHashMap<Entry, Boolean>());
+        for (Entry entry : entries) {
+            if (!seen.add(entry)) {
+                continue;
+            }
+            var suggestion = entry.toSuggestion();
+            if (suggestion == null) {
+                continue;
+            }
+            top.offer(new Ranked(entry, suggestion));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        var ranked = new ArrayList<Ranked>(top.size());
+        while (!top.isEmpty()) {
+            ranked.add(top.poll());
+        }
+        Collections.reverse(ranked);
+        return ranked;
+    }
+
+    public int size() {
+        return keysByMovieInfoId.size();
+    }
+
+    private void add(List<String> keys, String text, Suggestion.Type type, String movieInfoId) {
+        if (text == null) {
+            return;
+        }
+        var normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+
+        // names are per title, cast names are shared by all the titles of an actor
+        var entryId = type == Suggestion.Type.NAME
+                ? normalized + SEPARATOR + type + SEPARATOR + movieInfoId
+                : normalized + SEPARATOR + type;
+        var entry = entriesByKey.get(normalized + SEPARATOR + entryId);
+        if (entry == null) {
+            entry = new Entry(text, type);
+        }
+        entry.movieInfoIds.add(movieInfoId);
+
+        for (int start = 0; start >= 0; start = nextWord(normalized, start)) {
+            var key = normalized.substring(start) + SEPARATOR + entryId;
+            entriesByKey.put(key, entry);
+            keys.add(key);
+        }
+    }
+
+    private static int nextWord(String normalized, int start) {
+        var space = normalized.indexOf(' ', start);
+        return space < 0 ? -1 : space + 1;
+    }
+
+    static String normalize(String text) {
+        var decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        var withoutMarks = MARKS.matcher(decomposed).replaceAll("");
+        return SPACES.matcher(withoutMarks.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static final class Ranked {
+        private final Entry entry;
+        private final Suggestion suggestion;
+
+        private Ranked(Entry entry, Suggestion suggestion) {
+            this.entry = entry;
+            this.suggestion = suggestion;
+        }
+    }
+
+    private final class Entry {
+        private final String text;
+        private final Suggestion.Type type;
+        private final Set<String> movieInfoIds = ConcurrentHashMap.newKeySet();
+        // views of its titles as of the last refresh
+        private volatile long popularity;
+
+        private Entry(String text, Suggestion.Type type) {
+            this.text = text;
+            this.type = type;
+        }
+
+        private long viewCount() {
+            long viewCount = 0;
+            for (String id : movieInfoIds) {
+                var titleViews = views.get(id);
+                viewCount += titleViews == null ? 0 : titleViews.sum();
+            }
+            return viewCount;
+        }
+
+        private Suggestion toSuggestion() {
+            var movieInfoId = movieInfoIds.stream().findFirst();
+            if (movieInfoId.isEmpty()) {
+                return null;
+            }
+            return new Suggestion(text, type, type == Suggestion.Type.NAME ? movieInfoId.get() : null, popularity);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.reactivespring.util;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Blocking InputStream over a DataBuffer publisher, for java.io decoders such as GZIPInputStream.
+ * The next buffer is only requested once the current one is read, so at most one buffer is held
+ * and a slow reader slows the producer down. Reads block, keep them off the event loop.
+ */
+public class DataBufferInputStream extends InputStream {
+    private static final Object COMPLETE = new Object();
+
+    // DataBuffer, Throwable or COMPLETE
+    private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+    private final BaseSubscriber<DataBuffer> subscriber = new BaseSubscriber<>() {
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            subscription.request(1);
+        }
+
+        @Override
+        protected void hookOnNext(DataBuffer dataBuffer) {
+            signals.add(dataBuffer);
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            signals.add(COMPLETE);
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            signals.add(throwable);
+        }
+    };
+
+    private DataBuffer current;
+    private boolean done;
+
+    public DataBufferInputStream(Publisher<DataBuffer> source) {
+        source.subscribe(subscriber);
+    }
+
+    @Override
+    public int read() throws IOException {
+        var single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (current == null || current.readableByteCount() == 0) {
+            if (done) {
+                return -1;
+            }
+            if (current != null) {
+                DataBufferUtils.release(current);
+                current = null;
+                subscriber.request(1);
+            }
+            next();
+        }
+
+        var count = Math.min(length, current.readableByteCount());
+        current.read(bytes, offset, count);
+        return count;
+    }
+
+    private void next() throws IOException {
+        Object signal;
+        try {
+            signal = signals.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        if (signal == COMPLETE) {
+            done = true;
+        } else if (signal instanceof Throwable) {
+            done = true;
+            throw new IOException((Throwable) signal);
+        } else {
+            current = (DataBuffer) signal;
+        }
+    }
+
+    @Override
+    public void close() {
+        subscriber.dispose();
+        if (current != null) {
+            DataBufferUtils.release(current);
+            current = null;
+        }
+        signals.forEach(signal -> {
+            if (signal instanceof DataBuffer) {
+                DataBufferUtils.release((DataBuffer) signal);
+            }
+        });
+        signals.clear();
+        done = true;
+    }
+}
@@ -0,0 +1,77 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Sinks;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Lets any number of threads emit into a sink without ever getting FAIL_NON_SERIALIZED. Elements go through a
+ * lock free queue, the thread that finds it idle drains it into the target and every other thread just leaves its
+ * element behind for that one, so no emitter ever blocks, spins or retries.
+ */
+@Slf4j
+public class SerializedEmitter<T> {
+
+    private final String name;
+    private final Function<T, Sinks.EmitResult> target;
+    private final MeterRegistry meterRegistry;
+
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Counter handoffs;
+
+    /**
+     * @param target called by one thread at a time, in the order the elements were queued
+     */
+    public SerializedEmitter(String name, Function<T, Sinks.EmitResult> target, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.target = target;
+        this.meterRegistry = meterRegistry;
+        this.handoffs = Counter.builder(name + ".emit.handoffs")
+                .description("emits that found another thread draining and were left to it")
+                .register(meterRegistry);
+    }
+
+    public void emit(T element) {
+        queue.offer(element);
+        if (wip.getAndIncrement() != 0) {
+            handoffs.increment();
+            return;
+        }
+
+        var missed = 1;
+        do {
+            T next;
+            while ((next = queue.poll()) != null) {
+                emitOne(next);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emitOne(T element) {
+        Sinks.EmitResult result;
+        try {
+            result = target.apply(element);
+        } catch (RuntimeException ex) {
+            // the drain has to go on, a target that throws would otherwise stall every later emit
+            log.warn("Emit to {} failed", name, ex);
+            failed("ERROR");
+            return;
+        }
+        // nobody listening is not a loss
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            failed(result.name());
+        }
+    }
+
+    private void failed(String result) {
+        meterRegistry.counter(name + ".emit.failures", "result", result).increment();
+    }
+}
@@ -0,0 +1,82 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+/**
+ * Merges writes to the same key that arrive within a window into a single write of the last value,
+ * and hands its outcome to every caller of the window. A zero window writes straight through.
+ */
+public class WriteCoalescer<V, R> {
+
+    private final Duration window;
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Counter writes;
+    private final Counter coalesced;
+
+    public WriteCoalescer(String name, Duration window, MeterRegistry meterRegistry) {
+        this.window = window;
+        this.writes = meterRegistry.counter(name + ".writes");
+        this.coalesced = meterRegistry.counter(name + ".coalesced");
+    }
+
+    /**
+     * @param writer performs the write of the value the window ends up with, only the first caller's is used
+     */
+    public Mono<R> submit(String key, V value, BiFunction<String, V, Mono<R>> writer) {
+        if (window.isZero()) {
+            return Mono.defer(() -> {
+                writes.increment();
+                return writer.apply(key, value);
+            });
+        }
+
+        return Mono.defer(() -> {
+            var opened = new AtomicBoolean();
+            var entry = pending.compute(key, (k, existing) -> {
+                if (existing == null) {
+                    opened.set(true);
+                    return new Pending(value, writer);
+                }
+                existing.value = value;
+                coalesced.increment();
+                return existing;
+            });
+            if (opened.get()) {
+                Mono.delay(window).subscribe(tick -> flush(key, entry));
+            }
+            return entry.result.asMono();
+        });
+    }
+
+    private void flush(String key, Pending entry) {
+        // from here on writes to the key open a new window, the value of this one can no longer change
+        pending.remove(key, entry);
+        writes.increment();
+
+        Mono.defer(() -> entry.writer.apply(key, entry.value))
+                .subscribe(
+                        entry.result::tryEmitValue,
+                        entry.result::tryEmitError,
+                        entry.result::tryEmitEmpty
+                );
+    }
+
+    private final class Pending {
+        private final Sinks.One<R> result = Sinks.one();
+        private final BiFunction<String, V, Mono<R>> writer;
+        private volatile V value;
+
+        private Pending(V value, BiFunction<String, V, Mono<R>> writer) {
+            this.value = value;
+            this.writer = writer;
+        }
+    }
+}
@@ -42,4 +42,18 @@ curl -i -X DELETE http://localhost:8080/v1/movieinfos/1
 
 STREAM-MOVIE-INFO
 -----------------------
-curl -i http://localhost:8080/v1/movieinfos/stream
\ No newline at end of file
+curl -i http://localhost:8080/v1/movieinfos/stream
+
+STREAM-MOVIE-INFO-EVENTS
+-----------------------
+curl -i http://localhost:8080/v1/movieinfos/events
+
+GET-MOVIE-INFOS-BY-RELEASE-DATE
+-----------------------
+curl -i -H "Accept: application/x-ndjson" "http://localhost:8080/v1/movieinfos/releases?from=2005-01-01&to=2012-12-31&limit=100"
+curl -i "http://localhost:8080/v1/movieinfos/releases/recent"
+
+EXPORT-IMPORT-CATALOG
+-----------------------
+curl -o movieinfos.ndjson.gz http://localhost:8080/v1/admin/movieinfos/export
+curl -i -H "Content-Type: application/gzip" --data-binary @movieinfos.ndjson.gz http://localhost:8080/v1/admin/movieinfos/import
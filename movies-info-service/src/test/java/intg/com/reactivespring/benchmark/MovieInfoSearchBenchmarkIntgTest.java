@@ -0,0 +1,103 @@
+package com.reactivespring.benchmark;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.repository.MovieInfoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Seeds the embedded mongo with a large catalog and times /v1/movieinfos/search against it.
+ * Takes several minutes, so it only runs with BENCHMARK=true (size with BENCHMARK_DOCUMENTS, default 1M).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient(timeout = "60s")
+@EnabledIfEnvironmentVariable(named = "BENCHMARK", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Slf4j
+class MovieInfoSearchBenchmarkIntgTest {
+
+    private static final String SEARCH_URL = "/v1/movieinfos/search?q={q}&limit=20";
+    private static final List<String> WORDS = List.of("dark", "knight", "rises", "batman", "begins", "return",
+            "night", "city", "last", "first", "empire", "strikes", "back", "lost", "world", "silent");
+    private static final List<String> ACTORS = List.of("Christian Bale", "Tom Hardy", "Michael Cane",
+            "Heath Ledger", "Gary Oldman", "Anne Hathaway", "Morgan Freeman", "Cillian Murphy");
+
+    @Autowired
+    MovieInfoRepository movieInfoRepository;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @BeforeAll
+    void seed() {
+        var documents = Integer.parseInt(System.getenv().getOrDefault("BENCHMARK_DOCUMENTS", "1000000"));
+        var random = new Random(42);
+
+        Flux.range(0, documents)
+                .map(i -> new MovieInfo(null,
+                        WORDS.get(random.nextInt(WORDS.size())) + " " + WORDS.get(random.nextInt(WORDS.size())) + " " + i,
+                        1950 + random.nextInt(75),
+                        List.of(ACTORS.get(random.nextInt(ACTORS.size())), "Actor " + random.nextInt(50_000)),
+                        LocalDate.of(1950 + random.nextInt(75), 1 + random.nextInt(12), 1 + random.nextInt(28))))
+                .buffer(10_000)
+                .concatMap(batch -> reactiveMongoTemplate.insertAll(batch), 1)
+                .blockLast(Duration.ofMinutes(30));
+    }
+
+    @AfterAll
+    void tearDown() {
+        movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    void search() {
+        // warm up the connection pool and the index
+        runQueries(20);
+
+        var timings = runQueries(200);
+        Arrays.sort(timings);
+        var p50 = timings[timings.length / 2];
+        var p99 = timings[(int) (timings.length * 0.99)];
+        log.info("search p50 = {} ms, p99 = {} ms", p50, p99);
+
+        assertTrue(p50 < 50, "search p50 was " + p50 + " ms, p99 " + p99 + " ms");
+    }
+
+    private long[] runQueries(int count) {
+        var timings = new long[count];
+        for (int i = 0; i < count; i++) {
+            var q = i % 2 == 0 ? WORDS.get(i % WORDS.size()) : "\"" + ACTORS.get(i % ACTORS.size()) + "\"";
+            var start = System.nanoTime();
+            webTestClient.get()
+                    .uri(SEARCH_URL, q)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(MovieInfo.class);
+            timings[i] = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        }
+        return timings;
+    }
+}
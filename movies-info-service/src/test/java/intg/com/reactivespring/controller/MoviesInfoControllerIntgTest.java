@@ -1,5 +1,6 @@
 package com.reactivespring.controller;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.repository.MovieInfoRepository;
 import org.junit.jupiter.api.AfterEach;
@@ -30,6 +31,9 @@ class MoviesInfoControllerIntgTest {
     @Autowired
     WebTestClient webTestClient;
 
+    @Autowired
+    Cache<String, MovieInfo> movieInfoCache;
+
     @BeforeEach
     void setUp() {
         var movieinfos = List.of(new MovieInfo(null, "Batman Begins",
@@ -46,6 +50,7 @@ class MoviesInfoControllerIntgTest {
     @AfterEach
     void tearDown() {
         movieInfoRepository.deleteAll().block();
+        movieInfoCache.invalidateAll();
     }
 
     @Test
@@ -72,6 +77,35 @@ class MoviesInfoControllerIntgTest {
         // then
     }
 
+    @Test
+    void addMovieInfo_existingId() {
+        // given
+        var movieInfo = new MovieInfo("abc", "The Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+
+        // when
+        webTestClient
+                .post()
+                .uri(MOVIE_INFO_URL)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(MovieInfo.class)
+                .consumeWith(movieInfoEntityExchangeResult -> {
+                    var savedMovieInfo = movieInfoEntityExchangeResult.getResponseBody();
+                    assert savedMovieInfo != null;
+                    assertEquals("The Dark Knight Rises", savedMovieInfo.getName());
+                });
+
+        // then
+        StepVerifier.create(movieInfoRepository.findById("abc"))
+                .assertNext(savedMovieInfo -> {
+                    assertEquals("The Dark Knight Rises", savedMovieInfo.getName());
+                    assertEquals(1L, savedMovieInfo.getVersion());
+                })
+                .verifyComplete();
+    }
+
     @Test
     void getAllMovieInfos_stream() {
         // given
@@ -146,6 +180,23 @@ class MoviesInfoControllerIntgTest {
         // then
     }
 
+    @Test
+    void searchMovieInfos() {
+        // given
+        var uri = UriComponentsBuilder.fromUriString(MOVIE_INFO_URL + "/search")
+                .queryParam("q", "knight")
+                .buildAndExpand().toUri();
+
+        // when
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
     @Test
     void getMovieInfoById() {
         // given
@@ -236,4 +287,17 @@ class MoviesInfoControllerIntgTest {
                 .exchange()
                 .expectStatus().isNoContent();
     }
+
+    @Test
+    void deleteMovieInfoById_notFound() {
+        // given
+        var movieInfoId = "def";
+
+        // when
+        webTestClient
+                .delete()
+                .uri(MOVIE_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
 }
\ No newline at end of file
@@ -1,26 +1,38 @@
 package com.reactivespring.repository;
 
 import com.reactivespring.domain.MovieInfo;
+import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
 import org.springframework.test.context.ActiveProfiles;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataMongoTest
 @ActiveProfiles("test")
 class MovieInfoRepositoryIntgTest {
+    // sorts after every generated id, a cursor on it skips the whole release date
+    private static final String LAST_OBJECT_ID = "ffffffffffffffffffffffff";
+
     @Autowired
     MovieInfoRepository movieInfoRepository;
 
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
     @BeforeEach
     void setUp() {
         var movieinfos = List.of(new MovieInfo(null, "Batman Begins",
@@ -119,6 +131,21 @@ class MovieInfoRepositoryIntgTest {
                 .verifyComplete();
     }
 
+    @Test
+    void deleteAndReturn() {
+        // given
+
+        // when
+        var deleted = movieInfoRepository.deleteAndReturn("abc").log();
+
+        // then
+        StepVerifier.create(deleted)
+                .assertNext(movieInfo -> assertEquals("abc", movieInfo.getMovieInfoId()))
+                .verifyComplete();
+        StepVerifier.create(movieInfoRepository.deleteAndReturn("abc"))
+                .verifyComplete();
+    }
+
     @Test
     void findByYear() {
         // given
@@ -149,4 +176,118 @@ class MovieInfoRepositoryIntgTest {
                 })
                 .verifyComplete();
     }
-}
\ No newline at end of file
+
+    @Test
+    void findById_fields() {
+        // when
+        var moviesInfoMono = movieInfoRepository.findById("abc", Set.of("name", "year")).log();
+
+        // then
+        StepVerifier.create(moviesInfoMono)
+                .assertNext(movieInfo -> {
+                    assertEquals("abc", movieInfo.getMovieInfoId());
+                    assertEquals("Dark Knight Rises", movieInfo.getName());
+                    assertNull(movieInfo.getCast());
+                    assertNull(movieInfo.getReleaseDate());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findByCast() {
+        // given
+        String cast = "Christian Bale";
+
+        // when
+        var firstPage = movieInfoRepository.findByCast(cast, null, 2, null).collectList().block();
+        var secondPage = movieInfoRepository.findByCast(cast, firstPage.get(1).getMovieInfoId(), 2, null).log();
+
+        // then
+        assertEquals("abc", firstPage.get(0).getMovieInfoId());
+        StepVerifier.create(secondPage)
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void findByCast_afterStringId() {
+        // when
+        var moviesInfoFlux = movieInfoRepository.findByCast("Christian Bale", "abc", 10, null).log();
+
+        // then
+        StepVerifier.create(moviesInfoFlux)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void findByReleaseDateBetween() {
+        // when
+        var moviesInfoFlux = movieInfoRepository.findByReleaseDateBetween(LocalDate.parse("2005-01-01"),
+                LocalDate.parse("2012-07-20"), LocalDate.parse("2005-06-15"), LAST_OBJECT_ID, 10, null).log();
+
+        // then
+        StepVerifier.create(moviesInfoFlux)
+                .assertNext(movieInfo -> assertEquals("The Dark Knight", movieInfo.getName()))
+                .assertNext(movieInfo -> assertEquals("Dark Knight Rises", movieInfo.getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void findByReleaseDateBetween_seeksPastTheCursor() {
+        // given
+        var olderMovieInfos = IntStream.range(0, 50)
+                .mapToObj(i -> new MovieInfo(null, "Movie " + i, 1990,
+                        List.of(), LocalDate.parse("1990-01-01").plusDays(i)))
+                .collect(Collectors.toList());
+        movieInfoRepository.saveAll(olderMovieInfos).blockLast();
+        var query = MovieInfoRepositoryCustomImpl.releasedBetween(LocalDate.parse("1990-01-01"),
+                LocalDate.parse("2012-07-20"), LocalDate.parse("2008-07-18"), LAST_OBJECT_ID).limit(10);
+        var converter = reactiveMongoTemplate.getConverter();
+        var entity = converter.getMappingContext().getPersistentEntity(MovieInfo.class);
+        var queryMapper = new QueryMapper(converter);
+
+        // when
+        var explain = reactiveMongoTemplate.executeCommand(new Document("explain", new Document("find",
+                        reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                        .append("filter", queryMapper.getMappedObject(query.getQueryObject(), entity))
+                        .append("sort", queryMapper.getMappedSort(query.getSortObject(), entity))
+                        .append("limit", 10))
+                        .append("verbosity", "executionStats"))
+                .block();
+
+        // then
+        var executionStats = explain.get("executionStats", Document.class);
+        assertEquals(1, executionStats.getInteger("nReturned"));
+        assertTrue(executionStats.getInteger("totalKeysExamined") < 5);
+    }
+
+    @Test
+    void countByYear() {
+        // when
+        var statsFlux = movieInfoRepository.countByYear().log();
+
+        // then
+        StepVerifier.create(statsFlux)
+                .assertNext(stat -> {
+                    assertEquals("2005", stat.getKey());
+                    assertEquals(1, stat.getCount());
+                })
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void topCast() {
+        // when
+        var statsFlux = movieInfoRepository.topCast(1).log();
+
+        // then
+        StepVerifier.create(statsFlux)
+                .assertNext(stat -> {
+                    assertEquals("Christian Bale", stat.getKey());
+                    assertEquals(3, stat.getCount());
+                })
+                .verifyComplete();
+    }
+}
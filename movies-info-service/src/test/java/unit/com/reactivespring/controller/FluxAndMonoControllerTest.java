@@ -1,9 +1,13 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.config.ErrorConfig;
+import com.reactivespring.config.TracingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.test.StepVerifier;
 
@@ -12,6 +16,7 @@ import java.util.Objects;
 import static org.junit.jupiter.api.Assertions.*;
 
 @WebFluxTest(controllers = FluxAndMonoController.class)
+@Import({TracingConfig.class, ErrorConfig.class, SimpleMeterRegistry.class})
 @AutoConfigureWebTestClient
 class FluxAndMonoControllerTest {
     @Autowired
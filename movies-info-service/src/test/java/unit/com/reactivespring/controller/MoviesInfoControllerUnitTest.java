@@ -1,19 +1,30 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.config.ErrorConfig;
+import com.reactivespring.config.TracingConfig;
+import com.reactivespring.domain.CatalogStat;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.RecentReleases;
 import com.reactivespring.service.MovieInfoService;
+import com.reactivespring.service.MovieInfoStatsService;
+import com.reactivespring.service.RecentReleasesCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -21,6 +32,7 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MoviesInfoController.class)
+@Import({TracingConfig.class, ErrorConfig.class, SimpleMeterRegistry.class})
 @AutoConfigureWebTestClient
 public class MoviesInfoControllerUnitTest {
     public static final String MOVIE_INFO_URL = "/v1/movieinfos";
@@ -30,6 +42,12 @@ public class MoviesInfoControllerUnitTest {
     @MockBean // Inject Spring Bean into a context
     private MovieInfoService movieInfoServiceMock;
 
+    @MockBean
+    private MovieInfoStatsService movieInfoStatsServiceMock;
+
+    @MockBean
+    private RecentReleasesCache recentReleasesCacheMock;
+
     @Test
     void getAllMoviesInfo() {
         var movieinfos = List.of(new MovieInfo(null, "Batman Begins",
@@ -39,7 +57,7 @@ public class MoviesInfoControllerUnitTest {
                 new MovieInfo("abc", "Dark Knight Rises",
                         2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
 
-        when(movieInfoServiceMock.getAllMovieInfos())
+        when(movieInfoServiceMock.getAllMovieInfos(isNull()))
                 .thenReturn(Flux.fromIterable(movieinfos));
 
         webTestClient
@@ -51,12 +69,160 @@ public class MoviesInfoControllerUnitTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getMovieInfosByCast() {
+        var movieinfos = List.of(new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        when(movieInfoServiceMock.getMovieInfoByCast("Tom Hardy", "abb", 10, null))
+                .thenReturn(Flux.fromIterable(movieinfos));
+
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(MOVIE_INFO_URL)
+                        .queryParam("cast", "Tom Hardy")
+                        .queryParam("after", "abb")
+                        .queryParam("limit", 10)
+                        .build())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getMovieInfosByReleaseDate() {
+        var movieinfos = List.of(new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        when(movieInfoServiceMock.getMovieInfoByReleaseDate(LocalDate.parse("2010-01-01"),
+                LocalDate.parse("2012-12-31"), "2008-07-18_abb", 1000, null))
+                .thenReturn(Flux.fromIterable(movieinfos));
+
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(MOVIE_INFO_URL + "/releases")
+                        .queryParam("from", "2010-01-01")
+                        .queryParam("to", "2012-12-31")
+                        .queryParam("after", "2008-07-18_abb")
+                        .queryParam("limit", 5000)
+                        .build())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getMovieInfosByReleaseDate_linksTheNextPage() {
+        var movieinfos = List.of(new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        when(movieInfoServiceMock.getMovieInfoByReleaseDate(LocalDate.parse("2010-01-01"),
+                LocalDate.parse("2012-12-31"), null, 1, null))
+                .thenReturn(Flux.fromIterable(movieinfos));
+
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(MOVIE_INFO_URL + "/releases")
+                        .queryParam("from", "2010-01-01")
+                        .queryParam("to", "2012-12-31")
+                        .queryParam("limit", 1)
+                        .build())
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().valueEquals(HttpHeaders.LINK, "<" + MOVIE_INFO_URL
+                        + "/releases?from=2010-01-01&to=2012-12-31&limit=1&after=2012-07-20_abc>; rel=\"next\"");
+    }
+
+    @Test
+    void getMovieInfosByCast_lastPageHasNoLink() {
+        var movieinfos = List.of(new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        when(movieInfoServiceMock.getMovieInfoByCast("Tom Hardy", null, 2, null))
+                .thenReturn(Flux.fromIterable(movieinfos));
+
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(MOVIE_INFO_URL)
+                        .queryParam("cast", "Tom Hardy")
+                        .queryParam("limit", 2)
+                        .build())
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().doesNotExist(HttpHeaders.LINK)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getRecentReleases_truncatedWindowLinksTheRest() {
+        var movieinfos = List.of(new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        when(recentReleasesCacheMock.recentReleases())
+                .thenReturn(Mono.just(new RecentReleases(LocalDate.parse("2012-07-02"), LocalDate.parse("2012-08-01"),
+                        movieinfos, true)));
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL + "/releases/recent")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().valueEquals(HttpHeaders.LINK, "<" + MOVIE_INFO_URL
+                        + "/releases?from=2012-07-02&to=2012-08-01&after=2012-07-20_abc>; rel=\"next\"")
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void searchMovieInfos() {
+        var movieinfos = List.of(new MovieInfo(null, "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")),
+                new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        when(movieInfoServiceMock.searchMovieInfos("knight", 100, null))
+                .thenReturn(Flux.fromIterable(movieinfos));
+
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(MOVIE_INFO_URL + "/search")
+                        .queryParam("q", "knight")
+                        .queryParam("limit", 1000)
+                        .build())
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void countByYear() {
+        when(movieInfoStatsServiceMock.countByYear())
+                .thenReturn(Mono.just(List.of(new CatalogStat("2005", 1), new CatalogStat("2008", 2))));
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL + "/stats/years")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$[1].key").isEqualTo("2008")
+                .jsonPath("$[1].count").isEqualTo(2);
+    }
+
     @Test
     void getMovieInfoById() {
         var movieInfo = new MovieInfo(null, "Batman Begins",
                 2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
 
-        when(movieInfoServiceMock.getMovieInfoById(anyString()))
+        when(movieInfoServiceMock.getMovieInfoById(anyString(), isNull()))
                 .thenReturn(Mono.just(movieInfo));
 
         webTestClient
@@ -67,6 +233,87 @@ public class MoviesInfoControllerUnitTest {
                 .expectBody(MovieInfo.class);
     }
 
+    @Test
+    void getMovieInfoById_fields() {
+        var movieInfo = new MovieInfo("abc", "Batman Begins", 2005, null, null);
+
+        when(movieInfoServiceMock.getMovieInfoById("abc", Set.of("name", "year")))
+                .thenReturn(Mono.just(movieInfo));
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL + "/{id}?fields=name,year", "abc")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Batman Begins")
+                .jsonPath("$.cast").doesNotExist()
+                .jsonPath("$.releaseDate").doesNotExist();
+    }
+
+    @Test
+    void getMovieInfoById_notModified() {
+        var movieInfo = new MovieInfo("abc", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"), 3L);
+
+        when(movieInfoServiceMock.getMovieInfoById(anyString(), isNull()))
+                .thenReturn(Mono.just(movieInfo));
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL + "/{id}", "abc")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().valueEquals("ETag", "\"3\"")
+                .expectHeader().valueEquals("Cache-Control", "no-cache");
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL + "/{id}", "abc")
+                .header("If-None-Match", "\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void getAllMoviesInfo_untagged() {
+        when(movieInfoServiceMock.getAllMovieInfos(isNull()))
+                .thenAnswer(invocation -> Flux.just(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 1L)));
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().doesNotExist("ETag")
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getMovieInfosByCast_notModified() {
+        when(movieInfoServiceMock.getMovieInfoByCast("Tom Hardy", null, 100, null))
+                .thenAnswer(invocation -> Flux.just(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 1L)));
+
+        var eTag = webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL + "?cast={cast}", "Tom Hardy")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders().getETag();
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL + "?cast={cast}", "Tom Hardy")
+                .header("If-None-Match", eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
     @Test
     void addMovieInfo() {
         // when
@@ -154,7 +401,8 @@ public class MoviesInfoControllerUnitTest {
         var id = UUID.randomUUID().toString();
 
         when(movieInfoServiceMock.deleteMovieInfo(isA(String.class)))
-                .thenReturn(Mono.empty());
+                .thenReturn(Mono.just(new MovieInfo(id, "Batman Begins", 2005,
+                        List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"))));
 
         // when
         webTestClient
@@ -164,4 +412,20 @@ public class MoviesInfoControllerUnitTest {
                 .expectStatus().isNoContent()
                 .expectBody(Void.class);
     }
+
+    @Test
+    void deleteMovieInfoById_notFound() {
+        // given
+        var id = UUID.randomUUID().toString();
+
+        when(movieInfoServiceMock.deleteMovieInfo(isA(String.class)))
+                .thenReturn(Mono.empty());
+
+        // when
+        webTestClient
+                .delete()
+                .uri(MOVIE_INFO_URL + "/{id}", id)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
 }
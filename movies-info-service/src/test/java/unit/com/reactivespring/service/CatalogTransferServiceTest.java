@@ -0,0 +1,106 @@
+package com.reactivespring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.repository.MovieInfoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import javax.validation.Validation;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogTransferServiceTest {
+
+    MovieInfoRepository movieInfoRepository = Mockito.mock(MovieInfoRepository.class);
+
+    MovieInfoService movieInfoService = Mockito.mock(MovieInfoService.class);
+
+    CatalogTransferService catalogTransferService;
+
+    @BeforeEach
+    void setUp() {
+        var objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        catalogTransferService = new CatalogTransferService(movieInfoRepository, movieInfoService, objectMapper,
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(catalogTransferService, "batchSize", 2);
+    }
+
+    @Test
+    void exportThenImport() {
+        // given
+        var movieinfos = List.of(new MovieInfo(null, "Batman Begins",
+                        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo(null, "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")),
+                new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+        when(movieInfoRepository.findAll())
+                .thenReturn(Flux.fromIterable(movieinfos));
+        var written = new ArrayList<MovieInfo>();
+        when(movieInfoRepository.upsertAll(anyList()))
+                .thenAnswer(invocation -> {
+                    List<MovieInfo> batch = invocation.getArgument(0);
+                    written.addAll(batch);
+                    return Mono.just((long) batch.size());
+                });
+
+        // when
+        var export = catalogTransferService.exportMovieInfos()
+                .<DataBuffer>map(DefaultDataBufferFactory.sharedInstance::wrap);
+
+        // then
+        StepVerifier.create(catalogTransferService.importMovieInfos(export))
+                .assertNext(result -> {
+                    assertEquals(3, result.getImported());
+                    assertEquals(0, result.getRejected());
+                })
+                .verifyComplete();
+        assertEquals(movieinfos, written);
+        verify(movieInfoService).catalogReloaded();
+    }
+
+    @Test
+    void importMovieInfos_rejectsInvalidLines() throws Exception {
+        // given
+        var bytes = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(("{\"movieInfoId\":\"abc\",\"name\":\"Dark Knight Rises\",\"year\":2012,\"cast\":[\"Tom Hardy\"]}\n"
+                    + "{\"name\":\"\",\"year\":-1}\n"
+                    + "not json\n").getBytes());
+        }
+        when(movieInfoRepository.upsertAll(anyList()))
+                .thenAnswer(invocation -> Mono.just((long) invocation.<List<MovieInfo>>getArgument(0).size()));
+
+        // when
+        var result = catalogTransferService.importMovieInfos(
+                Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(bytes.toByteArray())));
+
+        // then
+        StepVerifier.create(result)
+                .assertNext(importResult -> {
+                    assertEquals(1, importResult.getImported());
+                    assertEquals(2, importResult.getRejected());
+                })
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,236 @@
+package com.reactivespring.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.domain.MovieInfoEventType;
+import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.stream.BoundedFanOut;
+import com.reactivespring.stream.MovieInfoStream;
+import com.reactivespring.stream.SinkMovieInfoStream;
+import com.reactivespring.suggest.MovieInfoSuggestIndex;
+import com.reactivespring.util.WriteCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieInfoServiceTest {
+
+    MovieInfoRepository movieInfoRepository = Mockito.mock(MovieInfoRepository.class);
+
+    Cache<String, MovieInfo> movieInfoCache;
+
+    MovieInfoStream movieInfoStream;
+
+    MovieInfoSuggestIndex movieInfoSuggestIndex;
+
+    MovieInfoService movieInfoService;
+
+    @BeforeEach
+    void setUp() {
+        movieInfoCache = Caffeine.newBuilder().maximumSize(10).build();
+        var meterRegistry = new SimpleMeterRegistry();
+        var fanOut = new BoundedFanOut("movieinfo.stream", 16, BoundedFanOut.OverflowPolicy.DROP_OLDEST,
+                10, Duration.ZERO, meterRegistry);
+        movieInfoStream = spy(new SinkMovieInfoStream(new SimpleMeterRegistry()));
+        movieInfoSuggestIndex = new MovieInfoSuggestIndex(256, Duration.ofMinutes(1));
+        movieInfoService = new MovieInfoService(movieInfoRepository, movieInfoCache, movieInfoStream, fanOut,
+                movieInfoSuggestIndex, new WriteCoalescer<>("movieinfo.update", Duration.ZERO, meterRegistry));
+        movieInfoService.subscribeToChanges();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieInfoService.unsubscribe();
+    }
+
+    @Test
+    void getMovieInfoById_readThrough() {
+        // given
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        when(movieInfoRepository.findById("abc"))
+                .thenReturn(Mono.just(movieInfo));
+
+        // when
+        StepVerifier.create(movieInfoService.getMovieInfoById("abc", null))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(movieInfoService.getMovieInfoById("abc", null))
+                .assertNext(movieInfo1 -> assertEquals("Dark Knight Rises", movieInfo1.getName()))
+                .verifyComplete();
+
+        // then
+        verify(movieInfoRepository, times(1)).findById("abc");
+    }
+
+    @Test
+    void getMovieInfoById_fieldsFromCache() {
+        // given
+        movieInfoCache.put("abc", new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        // when
+        StepVerifier.create(movieInfoService.getMovieInfoById("abc", Set.of("name")))
+                .assertNext(movieInfo -> {
+                    assertEquals("Dark Knight Rises", movieInfo.getName());
+                    assertNull(movieInfo.getCast());
+                })
+                .verifyComplete();
+
+        // then
+        verify(movieInfoRepository, never()).findById(anyString(), anySet());
+    }
+
+    @Test
+    void getMovieInfoById_unknownField() {
+        // when
+        StepVerifier.create(movieInfoService.getMovieInfoById("abc", Set.of("name", "budget")))
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
+    @Test
+    void addMovieInfo_publishesToStream() {
+        // given
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        when(movieInfoRepository.replace(isA(MovieInfo.class)))
+                .thenReturn(Mono.just(movieInfo));
+
+        // when
+        movieInfoService.addMovieInfo(movieInfo).block();
+
+        // then
+        StepVerifier.create(movieInfoService.getMovieInfoStream())
+                .assertNext(movieInfo1 -> assertEquals("abc", movieInfo1.getMovieInfoId()))
+                .thenCancel()
+                .verify();
+        verify(movieInfoRepository, never()).save(isA(MovieInfo.class));
+    }
+
+    @Test
+    void updateMovieInfo_refreshesCache() {
+        // given
+        var existing = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        var updated = new MovieInfo(null, "Dark Knight Rises1",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        movieInfoCache.put("abc", existing);
+        when(movieInfoRepository.findById("abc"))
+                .thenReturn(Mono.just(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"))));
+        when(movieInfoRepository.updateFields(eq("abc"), anyMap()))
+                .thenReturn(Mono.just(new MovieInfo("abc", "Dark Knight Rises1",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"))));
+
+        // when
+        movieInfoService.updateMovieInfo(updated, "abc").block();
+
+        // then
+        assertEquals("Dark Knight Rises1", movieInfoCache.getIfPresent("abc").getName());
+        verify(movieInfoRepository).updateFields("abc", Map.of("name", "Dark Knight Rises1"));
+        StepVerifier.create(movieInfoService.getMovieInfoEvents())
+                .assertNext(event -> {
+                    assertEquals(MovieInfoEventType.UPDATED, event.getType());
+                    assertEquals(Map.of("name", "Dark Knight Rises1"), event.getChanges());
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void deleteMovieInfo_invalidatesCache() {
+        // given
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        movieInfoCache.put("abc", movieInfo);
+        when(movieInfoRepository.deleteAndReturn("abc"))
+                .thenReturn(Mono.just(movieInfo));
+
+        // when
+        movieInfoService.deleteMovieInfo("abc").block();
+
+        // then
+        assertNull(movieInfoCache.getIfPresent("abc"));
+        verify(movieInfoStream).publish(argThat(event -> event.getType() == MovieInfoEventType.DELETED));
+    }
+
+    @Test
+    void deleteMovieInfo_unknownIdPublishesNothing() {
+        // given
+        when(movieInfoRepository.deleteAndReturn("abc"))
+                .thenReturn(Mono.empty());
+
+        // when
+        var deleted = movieInfoService.deleteMovieInfo("abc");
+
+        // then
+        StepVerifier.create(deleted)
+                .verifyComplete();
+        verify(movieInfoStream, never()).publish(any());
+    }
+
+    @Test
+    void subscribeToChanges_appliesDeletesOfOtherInstances() {
+        // given
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        movieInfoCache.put("abc", movieInfo);
+        movieInfoSuggestIndex.index(movieInfo);
+
+        // when
+        // what the change stream delivers for a delete made on another instance
+        movieInfoStream.publish(MovieInfoEvent.deleted("abc"));
+
+        // then
+        assertNull(movieInfoCache.getIfPresent("abc"));
+        assertTrue(movieInfoService.suggest("dark", 10).isEmpty());
+    }
+
+    @Test
+    void catalogReloaded_reindexes() {
+        // given
+        movieInfoCache.put("abc", new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+        when(movieInfoRepository.findAll())
+                .thenReturn(Flux.just(new MovieInfo("xyz", "Memento",
+                        2000, List.of("Guy Pearce"), LocalDate.parse("2000-09-05"))));
+
+        // when
+        movieInfoService.catalogReloaded();
+
+        // then
+        assertNull(movieInfoCache.getIfPresent("abc"));
+        assertEquals("xyz", movieInfoService.suggest("memento", 10).get(0).getMovieInfoId());
+    }
+}
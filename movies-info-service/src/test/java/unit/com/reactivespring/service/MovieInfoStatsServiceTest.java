@@ -0,0 +1,60 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.CatalogStat;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.stream.SinkMovieInfoStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieInfoStatsServiceTest {
+
+    MovieInfoRepository movieInfoRepository = Mockito.mock(MovieInfoRepository.class);
+
+    SinkMovieInfoStream movieInfoStream = new SinkMovieInfoStream(new SimpleMeterRegistry());
+
+    MovieInfoStatsService movieInfoStatsService;
+
+    @BeforeEach
+    void setUp() {
+        movieInfoStatsService = new MovieInfoStatsService(movieInfoRepository, movieInfoStream);
+        ReflectionTestUtils.setField(movieInfoStatsService, "ttl", Duration.ofMinutes(5));
+        movieInfoStatsService.subscribeToChanges();
+
+        when(movieInfoRepository.countByYear())
+                .thenAnswer(invocation -> Flux.just(new CatalogStat("2005", 1)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieInfoStatsService.unsubscribe();
+    }
+
+    @Test
+    void countByYear_cachedUntilChange() {
+        // when
+        movieInfoStatsService.countByYear().block();
+        movieInfoStatsService.countByYear().block();
+
+        // then
+        verify(movieInfoRepository, times(1)).countByYear();
+
+        // when
+        movieInfoStream.publish(MovieInfoEvent.deleted("abc"));
+        movieInfoStatsService.countByYear().block();
+
+        // then
+        verify(movieInfoRepository, times(2)).countByYear();
+    }
+}
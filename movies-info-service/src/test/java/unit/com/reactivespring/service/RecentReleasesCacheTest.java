@@ -0,0 +1,117 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.stream.SinkMovieInfoStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RecentReleasesCacheTest {
+
+    MovieInfoRepository movieInfoRepository = Mockito.mock(MovieInfoRepository.class);
+
+    SinkMovieInfoStream movieInfoStream = new SinkMovieInfoStream(new SimpleMeterRegistry());
+
+    RecentReleasesCache recentReleasesCache;
+
+    @BeforeEach
+    void setUp() {
+        recentReleasesCache = new RecentReleasesCache(movieInfoRepository, movieInfoStream);
+        ReflectionTestUtils.setField(recentReleasesCache, "recentDays", 30);
+        ReflectionTestUtils.setField(recentReleasesCache, "recentMaxSize", 1000);
+        recentReleasesCache.clock = Clock.fixed(Instant.parse("2012-08-01T10:00:00Z"), ZoneOffset.UTC);
+        recentReleasesCache.subscribeToChanges();
+
+        when(movieInfoRepository.findByReleaseDateBetween(LocalDate.parse("2012-07-02"), LocalDate.parse("2012-08-01"),
+                null, null, 1000, null))
+                .thenAnswer(invocation -> Flux.just(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        recentReleasesCache.unsubscribe();
+    }
+
+    @Test
+    void recentReleases_reloadedWhenTitleAdded() {
+        // when
+        recentReleasesCache.recentReleases().block();
+        var recent = recentReleasesCache.recentReleases().block();
+
+        // then
+        assertEquals(1, recent.getMovieInfos().size());
+        assertFalse(recent.isTruncated());
+        verify(movieInfoRepository, times(1)).findByReleaseDateBetween(Mockito.any(), Mockito.any(), isNull(), isNull(), anyInt(), isNull());
+
+        // when
+        movieInfoStream.publish(MovieInfoEvent.created(new MovieInfo("def", "Prometheus",
+                2012, List.of("Noomi Rapace"), LocalDate.parse("2012-06-08"))));
+        recentReleasesCache.recentReleases().block();
+
+        // then
+        verify(movieInfoRepository, times(2)).findByReleaseDateBetween(Mockito.any(), Mockito.any(), isNull(), isNull(), anyInt(), isNull());
+    }
+
+    @Test
+    void recentReleases_failedLoadIsNotKept() {
+        // given
+        var reads = new AtomicInteger();
+        when(movieInfoRepository.findByReleaseDateBetween(LocalDate.parse("2012-07-02"), LocalDate.parse("2012-08-01"),
+                null, null, 1000, null))
+                .thenReturn(Flux.defer(() -> reads.getAndIncrement() == 0
+                        ? Flux.error(new IllegalStateException("mongo down"))
+                        : Flux.just(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")))));
+
+        // when
+        StepVerifier.create(recentReleasesCache.recentReleases())
+                .expectError(IllegalStateException.class)
+                .verify();
+        var recent = recentReleasesCache.recentReleases().block();
+
+        // then
+        assertEquals(1, recent.getMovieInfos().size());
+    }
+
+    @Test
+    void recentReleases_windowLongerThanMaxSizeIsTruncated() {
+        // given
+        ReflectionTestUtils.setField(recentReleasesCache, "recentMaxSize", 1);
+        when(movieInfoRepository.findByReleaseDateBetween(LocalDate.parse("2012-07-02"), LocalDate.parse("2012-08-01"),
+                null, null, 1, null))
+                .thenReturn(Flux.just(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"))));
+
+        // when
+        var recent = recentReleasesCache.recentReleases().block();
+
+        // then
+        assertTrue(recent.isTruncated());
+        assertEquals(LocalDate.parse("2012-07-02"), recent.getFrom());
+        assertEquals(LocalDate.parse("2012-08-01"), recent.getTo());
+    }
+}
@@ -0,0 +1,93 @@
+package com.reactivespring.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoundedFanOutTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void dropOldest() {
+        // given
+        var fanOut = new BoundedFanOut("test.stream", 2, BoundedFanOut.OverflowPolicy.DROP_OLDEST,
+                10, Duration.ZERO, meterRegistry);
+        Sinks.Many<Integer> sink = Sinks.many().multicast().directBestEffort();
+
+        // when, then
+        StepVerifier.create(fanOut.subscribe(sink.asFlux()), 0)
+                .then(() -> {
+                    sink.tryEmitNext(1);
+                    sink.tryEmitNext(2);
+                    sink.tryEmitNext(3);
+                    sink.tryEmitNext(4);
+                })
+                .thenRequest(2)
+                .expectNext(3, 4)
+                .thenCancel()
+                .verify();
+
+        assertEquals(2.0, meterRegistry.get("test.stream.dropped").counter().count());
+    }
+
+    @Test
+    void disconnect() {
+        // given
+        var fanOut = new BoundedFanOut("test.stream", 2, BoundedFanOut.OverflowPolicy.DISCONNECT,
+                10, Duration.ZERO, meterRegistry);
+        Sinks.Many<Integer> sink = Sinks.many().multicast().directBestEffort();
+
+        // when, then
+        StepVerifier.create(fanOut.subscribe(sink.asFlux()), 0)
+                .then(() -> {
+                    sink.tryEmitNext(1);
+                    sink.tryEmitNext(2);
+                    sink.tryEmitNext(3);
+                })
+                .thenRequest(10)
+                .expectNext(1, 2)
+                .verifyComplete();
+
+        assertEquals(1.0, meterRegistry.get("test.stream.disconnected").counter().count());
+        assertEquals(0.0, meterRegistry.get("test.stream.subscribers").gauge().value());
+    }
+
+    @Test
+    void maxSubscribers() {
+        // given
+        var fanOut = new BoundedFanOut("test.stream", 2, BoundedFanOut.OverflowPolicy.DROP_OLDEST,
+                1, Duration.ZERO, meterRegistry);
+        Sinks.Many<Integer> sink = Sinks.many().multicast().directBestEffort();
+        var first = fanOut.subscribe(sink.asFlux()).subscribe();
+
+        // when, then
+        StepVerifier.create(fanOut.subscribe(sink.asFlux()))
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        first.dispose();
+    }
+
+    @Test
+    void heartbeat() {
+        // given
+        var fanOut = new BoundedFanOut("test.stream", 2, BoundedFanOut.OverflowPolicy.DROP_OLDEST,
+                10, Duration.ofSeconds(1), meterRegistry);
+        Sinks.Many<Integer> sink = Sinks.many().multicast().directBestEffort();
+
+        // when, then
+        StepVerifier.withVirtualTime(() -> fanOut.subscribe(sink.asFlux(), () -> -1))
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNext(-1)
+                .thenCancel()
+                .verify();
+    }
+}
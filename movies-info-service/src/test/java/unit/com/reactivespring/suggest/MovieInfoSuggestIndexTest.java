@@ -0,0 +1,162 @@
+package com.reactivespring.suggest;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Suggestion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieInfoSuggestIndexTest {
+    private static final int SCAN_LIMIT = 256;
+
+    MovieInfoSuggestIndex movieInfoSuggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        movieInfoSuggestIndex = new MovieInfoSuggestIndex(SCAN_LIMIT, Duration.ofMinutes(1));
+
+        movieInfoSuggestIndex.index(new MovieInfo("1", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")));
+        movieInfoSuggestIndex.index(new MovieInfo("2", "The Dark Knight",
+                2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")));
+        movieInfoSuggestIndex.index(new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+    }
+
+    @Test
+    void suggest_rankedByPopularity() {
+        // given
+        movieInfoSuggestIndex.recordView("abc");
+        movieInfoSuggestIndex.refresh();
+
+        // when
+        var suggestions = movieInfoSuggestIndex.suggest("Dar", 10);
+
+        // then
+        assertEquals(List.of("Dark Knight Rises", "The Dark Knight"), texts(suggestions));
+        assertEquals("abc", suggestions.get(0).getMovieInfoId());
+    }
+
+    @Test
+    void suggest_ranksEveryMatch() {
+        // given
+        for (int i = 0; i < 500; i++) {
+            movieInfoSuggestIndex.index(new MovieInfo("a" + i, String.format("Dark Alley %03d", i),
+                    2000, List.of(), LocalDate.parse("2000-01-01")));
+        }
+        movieInfoSuggestIndex.recordView("abc");
+        movieInfoSuggestIndex.refresh();
+
+        // when
+        var suggestions = movieInfoSuggestIndex.suggest("dark", 1);
+
+        // then
+        assertEquals(List.of("Dark Knight Rises"), texts(suggestions));
+    }
+
+    @Test
+    void suggest_cast() {
+        // when
+        var suggestions = movieInfoSuggestIndex.suggest("bale", 10);
+
+        // then
+        assertEquals(1, suggestions.size());
+        assertEquals(Suggestion.Type.CAST, suggestions.get(0).getType());
+        assertEquals("Christian Bale", suggestions.get(0).getText());
+    }
+
+    @Test
+    void index_update() {
+        // when
+        movieInfoSuggestIndex.index(new MovieInfo("abc", "The Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        // then
+        assertEquals(List.of("The Dark Knight", "The Dark Knight Rises"), texts(movieInfoSuggestIndex.suggest("the dark", 10)));
+    }
+
+    @Test
+    void remove() {
+        // when
+        movieInfoSuggestIndex.remove("abc");
+
+        // then
+        assertTrue(movieInfoSuggestIndex.suggest("tom", 10).isEmpty());
+        assertEquals(List.of("The Dark Knight"), texts(movieInfoSuggestIndex.suggest("knight", 10)));
+    }
+
+    @Test
+    void remove_dropsViews() {
+        // given
+        movieInfoSuggestIndex.recordView("abc");
+
+        // when
+        movieInfoSuggestIndex.remove("abc");
+        movieInfoSuggestIndex.index(new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+        movieInfoSuggestIndex.refresh();
+
+        // then
+        assertEquals(0, movieInfoSuggestIndex.suggest("rises", 10).get(0).getPopularity());
+    }
+
+    @Test
+    void suggest_shortPrefixOfALargeIndexStaysFast() {
+        // given
+        var random = new Random(42);
+        var words = List.of("dark", "knight", "rises", "batman", "begins", "return", "night", "city", "dawn", "day");
+        for (int i = 0; i < 100_000; i++) {
+            movieInfoSuggestIndex.index(new MovieInfo("m" + i,
+                    words.get(random.nextInt(words.size())) + " " + words.get(random.nextInt(words.size())) + " " + i,
+                    2000, List.of("Actor " + random.nextInt(5_000)), LocalDate.parse("2000-01-01")));
+        }
+        movieInfoSuggestIndex.index(new MovieInfo("top", "Dawn Patrol",
+                1938, List.of("Errol Flynn"), LocalDate.parse("1938-12-24")));
+        movieInfoSuggestIndex.recordView("top");
+        movieInfoSuggestIndex.refresh();
+
+        // when
+        var start = System.nanoTime();
+        List<Suggestion> suggestions = List.of();
+        for (int i = 0; i < 1_000; i++) {
+            suggestions = movieInfoSuggestIndex.suggest(i % 2 == 0 ? "d" : "da", 10);
+        }
+        var perRead = Duration.ofNanos(System.nanoTime() - start).dividedBy(1_000);
+
+        // then
+        assertEquals("top", suggestions.get(0).getMovieInfoId());
+        assertEquals(10, suggestions.size());
+        assertTrue(perRead.toMillis() < 5, "suggest took " + perRead.toNanos() / 1_000 + " us per read");
+    }
+
+    @Test
+    void suggest_keptTopLeavesOutRemovedTitles() {
+        // given
+        for (int i = 0; i < SCAN_LIMIT; i++) {
+            movieInfoSuggestIndex.index(new MovieInfo("a" + i, String.format("Dark Alley %03d", i),
+                    2000, List.of(), LocalDate.parse("2000-01-01")));
+        }
+        movieInfoSuggestIndex.recordView("abc");
+        movieInfoSuggestIndex.recordView("abc");
+        movieInfoSuggestIndex.recordView("2");
+        movieInfoSuggestIndex.refresh();
+
+        // when
+        movieInfoSuggestIndex.remove("abc");
+
+        // then
+        assertEquals(List.of("The Dark Knight"), texts(movieInfoSuggestIndex.suggest("d", 1)));
+    }
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getText).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,33 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ErrorReporterTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void report_countsEveryError() {
+        // given
+        var errorReporter = new ErrorReporter(1, Duration.ofMinutes(1), meterRegistry);
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            errorReporter.report(404, new ResponseStatusException(HttpStatus.NOT_FOUND));
+        }
+        errorReporter.report(500, new IllegalStateException("boom"));
+
+        // then
+        assertEquals(5, meterRegistry.get("http.server.errors")
+                .tags("exception", "ResponseStatusException", "status", "404").counter().count());
+        assertEquals(1, meterRegistry.get("http.server.errors")
+                .tags("exception", "IllegalStateException", "status", "500").counter().count());
+    }
+}
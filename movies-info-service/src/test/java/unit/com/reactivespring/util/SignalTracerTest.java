@@ -0,0 +1,46 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SignalTracerTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void flux_disabledLeavesPublisherUntouched() {
+        // given
+        var signalTracer = new SignalTracer(0, meterRegistry);
+        var flux = Flux.just(1, 2, 3);
+
+        // when
+        var traced = flux.transform(signalTracer.flux("test"));
+
+        // then
+        assertSame(flux, traced);
+        assertNull(meterRegistry.find("reactive.trace.duration").timer());
+    }
+
+    @Test
+    void flux_sampledRecordsTrace() {
+        // given
+        var signalTracer = new SignalTracer(1, meterRegistry);
+
+        // when
+        StepVerifier.create(Flux.just(1, 2, 3).transform(signalTracer.flux("test")))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        // then
+        assertEquals(1, meterRegistry.get("reactive.trace.duration")
+                .tags("name", "test", "signal", "ON_COMPLETE").timer().count());
+        assertEquals(1, meterRegistry.get("reactive.trace.first").tag("name", "test").timer().count());
+        assertEquals(3, meterRegistry.get("reactive.trace.elements").tag("name", "test").summary().totalAmount());
+    }
+}
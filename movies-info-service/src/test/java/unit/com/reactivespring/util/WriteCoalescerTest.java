@@ -0,0 +1,57 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WriteCoalescerTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void submit_burstIsWrittenOnce() {
+        // given
+        var coalescer = new WriteCoalescer<String, String>("test.update", Duration.ofMillis(100), meterRegistry);
+        var written = new CopyOnWriteArrayList<String>();
+
+        // when
+        var results = Flux.just("v1", "v2", "v3")
+                .flatMap(value -> coalescer.submit("abc", value, (key, last) -> {
+                    written.add(last);
+                    return Mono.just(key + ":" + last);
+                }))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // then
+        assertEquals(List.of("v3"), written);
+        assertEquals(List.of("abc:v3", "abc:v3", "abc:v3"), results);
+        assertEquals(2, meterRegistry.counter("test.update.coalesced").count());
+        assertEquals(1, meterRegistry.counter("test.update.writes").count());
+    }
+
+    @Test
+    void submit_zeroWindowWritesThrough() {
+        // given
+        var coalescer = new WriteCoalescer<String, String>("test.update", Duration.ZERO, meterRegistry);
+        var written = new CopyOnWriteArrayList<String>();
+
+        // when
+        Flux.just("v1", "v2")
+                .concatMap(value -> coalescer.submit("abc", value, (key, last) -> {
+                    written.add(last);
+                    return Mono.just(last);
+                }))
+                .blockLast(Duration.ofSeconds(5));
+
+        // then
+        assertEquals(List.of("v1", "v2"), written);
+    }
+}
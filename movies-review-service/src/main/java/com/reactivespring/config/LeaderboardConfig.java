@@ -0,0 +1,24 @@
+package com.reactivespring.config;
+
+import com.reactivespring.top.TopRatedLeaderboard;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class LeaderboardConfig {
+
+    @Bean
+    public TopRatedLeaderboard topRatedLeaderboard(
+            @Value("${reviews.top.windows:1d,7d}") List<Duration> windows,
+            @Value("${reviews.top.bucketSize:1h}") Duration bucketSize,
+            @Value("${reviews.top.priorWeight:10}") double priorWeight,
+            @Value("${reviews.top.maxK:100}") int maxK
+    ) {
+        return new TopRatedLeaderboard(windows, bucketSize, priorWeight, maxK, Clock.systemUTC());
+    }
+}
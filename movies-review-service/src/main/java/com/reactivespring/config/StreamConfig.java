@@ -0,0 +1,52 @@
+package com.reactivespring.config;
+
+import com.reactivespring.domain.ReviewEvent;
+import com.reactivespring.stream.BoundedFanOut;
+import com.reactivespring.stream.KeyedSinks;
+import com.reactivespring.util.SerializedEmitter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+@Configuration
+public class StreamConfig {
+
+    @Bean
+    public BoundedFanOut reviewsStreamFanOut(
+            @Value("${reviews.stream.subscriber.bufferSize:256}") int bufferSize,
+            @Value("${reviews.stream.subscriber.overflowPolicy:DROP_OLDEST}") BoundedFanOut.OverflowPolicy overflowPolicy,
+            @Value("${reviews.stream.maxSubscribers:1000}") int maxSubscribers,
+            MeterRegistry meterRegistry
+    ) {
+        // the stream carries bare Review documents, there is no element that could serve as a heartbeat
+        return new BoundedFanOut("reviews.stream", bufferSize, overflowPolicy, maxSubscribers, Duration.ZERO, meterRegistry);
+    }
+
+    @Bean
+    public KeyedSinks<Long, ReviewEvent> reviewsByMovieSinks(MeterRegistry meterRegistry) {
+        return new KeyedSinks<>("reviews.stream.movies", meterRegistry);
+    }
+
+    @Bean
+    public Sinks.Many<ReviewEvent> reviewsSink() {
+        return Sinks.many().replay().latest();
+    }
+
+    /**
+     * The only way into reviewsSink and reviewsByMovieSinks, fed by the tail of ReviewEventLog.
+     */
+    @Bean
+    public SerializedEmitter<ReviewEvent> reviewEventEmitter(Sinks.Many<ReviewEvent> reviewsSink,
+                                                             KeyedSinks<Long, ReviewEvent> reviewsByMovieSinks,
+                                                             MeterRegistry meterRegistry) {
+        return new SerializedEmitter<>("reviews.stream", event -> {
+            var result = reviewsSink.tryEmitNext(event);
+            var movieResult = reviewsByMovieSinks.emit(event.getReview().getMovieInfoId(), event);
+            return result.isFailure() ? result : movieResult;
+        }, meterRegistry);
+    }
+}
@@ -0,0 +1,61 @@
+package com.reactivespring.config;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
+import com.reactivespring.stream.ReviewEventLog;
+import com.reactivespring.util.MicroBatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Configuration
+@Slf4j
+public class WriteConfig {
+
+    /**
+     * A batch is inserted with one insertMany, then the inserted reviews go into their summaries and their CREATED
+     * events into the event log, each with one write as well. The reviews are in whether or not their events could
+     * be stored, a failure there only costs the streams those events.
+     */
+    @Bean
+    public MicroBatcher<Review> reviewInsertBatcher(
+            @Value("${reviews.insert.batch.maxSize:256}") int maxSize,
+            @Value("${reviews.insert.batch.window:0ms}") Duration window,
+            @Value("${reviews.insert.batch.concurrency:4}") int concurrency,
+            @Value("${reviews.insert.batch.maxQueued:16}") int maxQueued,
+            ReviewReactiveRepository reviewReactiveRepository,
+            ReviewSummaryRepository reviewSummaryRepository,
+            ReviewEventLog reviewEventLog,
+            MeterRegistry meterRegistry
+    ) {
+        return new MicroBatcher<>("reviews.insert", maxSize, window, concurrency, maxQueued,
+                reviews -> reviewReactiveRepository.insertUnordered(reviews)
+                        .flatMap(failures -> {
+                            var inserted = IntStream.range(0, reviews.size())
+                                    .filter(i -> !failures.containsKey(i))
+                                    .mapToObj(reviews::get)
+                                    .collect(Collectors.toList());
+                            return reviewSummaryRepository.recordAdded(inserted)
+                                    .then(reviewEventLog.appendAll(inserted.stream()
+                                                    .map(ReviewEvent::created)
+                                                    .collect(Collectors.toList()))
+                                            .onErrorResume(ex -> {
+                                                log.warn("CREATED events of {} batched reviews not stored : {}",
+                                                        inserted.size(), ex.getMessage());
+                                                return Flux.empty();
+                                            })
+                                            .then())
+                                    .thenReturn(failures);
+                        }),
+                meterRegistry);
+    }
+}
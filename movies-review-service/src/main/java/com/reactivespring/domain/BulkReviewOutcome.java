@@ -0,0 +1,27 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What became of one line of a bulk import : the id of the review it was inserted as, or why it was not.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkReviewOutcome {
+    private long line;
+    private String reviewId;
+    private String error;
+
+    public static BulkReviewOutcome inserted(long line, String reviewId) {
+        return new BulkReviewOutcome(line, reviewId, null);
+    }
+
+    public static BulkReviewOutcome rejected(long line, String error) {
+        return new BulkReviewOutcome(line, null, error);
+    }
+}
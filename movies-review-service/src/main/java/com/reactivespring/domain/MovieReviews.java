@@ -0,0 +1,18 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The most recent reviews of one movie, a line of the /v1/reviews/movies stream.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieReviews {
+    private Long movieInfoId;
+    private List<Review> reviews;
+}
@@ -1,10 +1,15 @@
 package com.reactivespring.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.Min;
@@ -13,7 +18,14 @@ import javax.validation.constraints.NotNull;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+// fields left out by a fields= projection are not sent at all
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Document
+// the two orders of /v1/reviews pages, see ReviewSort
+@CompoundIndexes({
+        @CompoundIndex(name = "movieInfoId_id", def = "{'movieInfoId': 1, '_id': -1}"),
+        @CompoundIndex(name = "movieInfoId_rating_id", def = "{'movieInfoId': 1, 'rating': -1, '_id': 1}")
+})
 public class Review {
 
     @Id
@@ -23,4 +35,13 @@ public class Review {
     private String comment;
     @Min(value = 0L, message = "rating.negative : please pass a non-negative value")
     private Double rating;
+
+    // bumped on every write, the ETag of the review
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    public Review(String reviewId, Long movieInfoId, String comment, Double rating) {
+        this(reviewId, movieInfoId, comment, rating, null);
+    }
 }
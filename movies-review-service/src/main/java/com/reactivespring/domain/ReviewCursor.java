@@ -0,0 +1,40 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last review of a page : its id, and its rating when the page is sorted by rating.
+ * Handed to clients base64 encoded, they only pass it back as after=.
+ */
+@Data
+@AllArgsConstructor
+public class ReviewCursor {
+    private Double rating;
+    private String reviewId;
+
+    public static ReviewCursor of(ReviewSort sort, Review review) {
+        return new ReviewCursor(sort == ReviewSort.RATING ? review.getRating() : null, review.getReviewId());
+    }
+
+    public String encode() {
+        var value = (rating == null ? "" : rating.toString()) + "_" + reviewId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException when the value is not a cursor handed out by {@link #encode()}
+     */
+    public static ReviewCursor decode(String value) {
+        var decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        var separator = decoded.indexOf('_');
+        if (separator < 0 || separator == decoded.length() - 1) {
+            throw new IllegalArgumentException(value);
+        }
+        var rating = separator == 0 ? null : Double.valueOf(decoded.substring(0, separator));
+        return new ReviewCursor(rating, decoded.substring(separator + 1));
+    }
+}
@@ -0,0 +1,37 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewEvent {
+    // assigned when the event is stored, increasing across every instance of the service, see ReviewEventLog
+    private long sequence;
+
+    private ReviewEventType type;
+
+    private String reviewId;
+
+    // the review as created, as updated, or as it was when deleted
+    private Review review;
+
+    // the review as it was before, UPDATED only, so consumers can take back what it replaced without keeping reviews
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Review previous;
+
+    public static ReviewEvent created(Review review) {
+        return new ReviewEvent(0, ReviewEventType.CREATED, review.getReviewId(), review, null);
+    }
+
+    public static ReviewEvent updated(Review review, Review previous) {
+        return new ReviewEvent(0, ReviewEventType.UPDATED, review.getReviewId(), review, previous);
+    }
+
+    public static ReviewEvent deleted(Review review) {
+        return new ReviewEvent(0, ReviewEventType.DELETED, review.getReviewId(), review, null);
+    }
+}
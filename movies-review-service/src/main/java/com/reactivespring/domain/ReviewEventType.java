@@ -0,0 +1,7 @@
+package com.reactivespring.domain;
+
+public enum ReviewEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
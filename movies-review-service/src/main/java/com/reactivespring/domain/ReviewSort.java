@@ -0,0 +1,9 @@
+package com.reactivespring.domain;
+
+/**
+ * Orders of /v1/reviews pages. Review ids are ObjectIds, so the most recent reviews have the highest ids.
+ */
+public enum ReviewSort {
+    RECENT,
+    RATING
+}
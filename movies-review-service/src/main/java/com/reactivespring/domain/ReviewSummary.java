@@ -0,0 +1,46 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rating summary of a movie, kept up to date by every review write so that reading it is a single lookup.
+ * Only reviews with a rating are counted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document
+public class ReviewSummary {
+
+    @Id
+    private Long movieInfoId;
+    private long count;
+    private double sum;
+    private Double min;
+    private Double max;
+    // reviews per whole rating, "7" counts the ratings from 7.0 up to 7.9
+    private Map<String, Long> histogram = new TreeMap<>();
+    // bumped by every write, the writes that are not a plain $inc only apply to the version they were computed from
+    @JsonIgnore
+    private long version;
+
+    public static ReviewSummary empty(Long movieInfoId) {
+        return new ReviewSummary(movieInfoId, 0, 0, null, null, new TreeMap<>(), 0);
+    }
+
+    public Double getAverage() {
+        return count == 0 ? null : sum / count;
+    }
+
+    public static String bucketOf(double rating) {
+        return String.valueOf((long) Math.floor(rating));
+    }
+}
@@ -0,0 +1,19 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A line of /v1/reviews/top : the reviews of the movie within the window and the score it is ranked by.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopRatedMovie {
+    private Long movieInfoId;
+    private long count;
+    private double average;
+    // Bayesian average, the average pulled towards the mean of the window by reviews.top.priorWeight reviews
+    private double score;
+}
@@ -3,7 +3,8 @@ package com.reactivespring.exception;
 public class ReviewDataException extends RuntimeException {
     private String message;
     public ReviewDataException(String s) {
-        super(s);
+        // answered with a 400, the stack trace would never be looked at
+        super(s, null, false, false);
         this.message=s;
     }
 }
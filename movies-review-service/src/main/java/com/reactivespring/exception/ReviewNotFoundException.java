@@ -6,13 +6,14 @@ public class ReviewNotFoundException extends RuntimeException{
     private Throwable ex;
 
     public ReviewNotFoundException( String message, Throwable ex) {
-        super(message, ex);
+        super(message, ex, false, false);
         this.message = message;
         this.ex = ex;
     }
 
     public ReviewNotFoundException(String message) {
-        super(message);
+        // answered with a 404, the stack trace would never be looked at
+        super(message, null, false, false);
         this.message = message;
     }
 }
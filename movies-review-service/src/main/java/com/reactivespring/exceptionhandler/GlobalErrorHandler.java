@@ -2,37 +2,53 @@ package com.reactivespring.exceptionhandler;
 
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
+import com.reactivespring.util.ErrorReporter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.web.reactive.error.ErrorWebExceptionHandler;
 import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.nio.charset.StandardCharsets;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class GlobalErrorHandler implements ErrorWebExceptionHandler {
 
+    private final ErrorReporter errorReporter;
+
     @Override
     public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
-        log.error("Exception message is {}", ex.getMessage(), ex);
         DataBufferFactory dataBufferFactory = exchange.getResponse().bufferFactory();
         var errorMessage = dataBufferFactory.wrap(ex.getMessage().getBytes());
 
         if (ex instanceof ReviewDataException) {
             exchange.getResponse().setStatusCode(HttpStatus.BAD_REQUEST);
+            errorReporter.report(HttpStatus.BAD_REQUEST.value(), ex);
             return exchange.getResponse().writeWith(Mono.just(errorMessage));
         }
 
         if (ex instanceof ReviewNotFoundException) {
             exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+            errorReporter.report(HttpStatus.NOT_FOUND.value(), ex);
             return exchange.getResponse().writeWith(Mono.just(errorMessage));
         }
 
+        if (ex instanceof ResponseStatusException) {
+            var responseStatusException = (ResponseStatusException) ex;
+            exchange.getResponse().setStatusCode(responseStatusException.getStatus());
+            errorReporter.report(responseStatusException.getRawStatusCode(), ex);
+            return exchange.getResponse().writeWith(Mono.just(
+                    dataBufferFactory.wrap(String.valueOf(responseStatusException.getReason()).getBytes())));
+        }
+
         exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
+        errorReporter.report(HttpStatus.INTERNAL_SERVER_ERROR.value(), ex);
         return exchange.getResponse().writeWith(Mono.just(errorMessage));
     }
 }
@@ -1,16 +1,41 @@
 package com.reactivespring.handler;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.domain.BulkReviewOutcome;
+import com.reactivespring.domain.MovieReviews;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewCursor;
+import com.reactivespring.domain.ReviewEvent;
+import com.reactivespring.domain.ReviewEventType;
+import com.reactivespring.domain.ReviewSort;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
+import com.reactivespring.stream.BoundedFanOut;
+import com.reactivespring.stream.KeyedSinks;
+import com.reactivespring.stream.ReviewEventLog;
+import com.reactivespring.top.TopRatedLeaderboard;
+import com.reactivespring.util.MicroBatcher;
+import com.reactivespring.util.SignalTracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
@@ -18,80 +43,558 @@ import reactor.core.publisher.Sinks;
 import javax.validation.ConstraintValidator;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class ReviewHandler {
-    private final Sinks.Many<Review> reviewsSink = Sinks.many().replay().latest();
+    private static final Set<String> PROJECTABLE_FIELDS = Set.of("reviewId", "movieInfoId", "comment", "rating");
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final int MAX_PAGE_LIMIT = 1000;
+    private static final int MAX_MOVIES = 100;
+    private static final int DEFAULT_PER_MOVIE = 10;
+    private static final int MAX_PER_MOVIE = 100;
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+    private static final Duration DEFAULT_TOP_WINDOW = Duration.ofDays(7);
+    private static final int DEFAULT_TOP_K = 10;
 
     private final Validator validator;
     private final ReviewReactiveRepository reviewReactiveRepository;
+    private final ReviewSummaryRepository reviewSummaryRepository;
+    private final BoundedFanOut reviewsStreamFanOut;
+    private final Sinks.Many<ReviewEvent> reviewsSink;
+    private final KeyedSinks<Long, ReviewEvent> reviewsByMovieSinks;
+    private final ReviewEventLog reviewEventLog;
+    private final TopRatedLeaderboard topRatedLeaderboard;
+    private final SignalTracer signalTracer;
+    private final MicroBatcher<Review> reviewInsertBatcher;
+    private final ObjectMapper objectMapper;
 
+    @Value("${reviews.http.maxAge:0s}")
+    private Duration maxAge;
+
+    @Value("${reviews.bulk.batchSize:500}")
+    private int bulkBatchSize;
+
+    @Value("${reviews.stream.history.maxPending:1000}")
+    private int maxPending;
+
+    /**
+     * New reviews go through the insert batcher when reviews.insert.batch.window is set, which stores the events of
+     * a batch itself. A review that comes with its id replaces the one stored under that id, if any, since save()
+     * would insert it (a versioned review without a version counts as new) and fail on a taken id.
+     */
     public Mono<ServerResponse> addReview(ServerRequest request) {
         return request.bodyToMono(Review.class)
                 .doOnNext(this::validate)
-                .flatMap(reviewReactiveRepository::save)
-                .doOnNext(reviewsSink::tryEmitNext)
+                .flatMap(review -> {
+                    if (review.getReviewId() != null) {
+                        return replaced(review);
+                    }
+                    if (reviewInsertBatcher.isEnabled()) {
+                        return reviewInsertBatcher.submit(review);
+                    }
+                    return reviewReactiveRepository.save(review)
+                            .flatMap(savedReview -> reviewSummaryRepository.record(savedReview.getMovieInfoId(),
+                                    null, savedReview.getRating()).thenReturn(savedReview))
+                            .flatMap(savedReview -> published(ReviewEvent.created(savedReview), savedReview));
+                })
                 .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue);
     }
 
+    /**
+     * The summaries move the previous rating out of the previous movie and the new one into the review's movie.
+     */
+    private Mono<Review> replaced(Review review) {
+        return reviewReactiveRepository.replace(review)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(previous -> {
+                    var savedReview = new Review(review.getReviewId(), review.getMovieInfoId(), review.getComment(),
+                            review.getRating(), previous.map(Review::getVersion).map(version -> version + 1).orElse(1L));
+                    if (previous.isEmpty()) {
+                        return reviewSummaryRepository.record(savedReview.getMovieInfoId(), null, savedReview.getRating())
+                                .then(published(ReviewEvent.created(savedReview), savedReview));
+                    }
+                    var previousReview = previous.get();
+                    var recorded = Objects.equals(previousReview.getMovieInfoId(), savedReview.getMovieInfoId())
+                            ? reviewSummaryRepository.record(savedReview.getMovieInfoId(), previousReview.getRating(),
+                                    savedReview.getRating())
+                            : reviewSummaryRepository.record(previousReview.getMovieInfoId(), previousReview.getRating(), null)
+                                    .then(reviewSummaryRepository.record(savedReview.getMovieInfoId(), null,
+                                            savedReview.getRating()));
+                    return recorded.then(published(ReviewEvent.updated(savedReview, previousReview), savedReview));
+                });
+    }
+
+    /**
+     * The write went through whether or not its event could be stored, so a failure here only costs the streams
+     * that event.
+     */
+    private <T> Mono<T> published(ReviewEvent event, T result) {
+        return reviewEventLog.append(event)
+                .onErrorResume(ex -> {
+                    log.warn("{} event of review {} not stored : {}", event.getType(), event.getReviewId(),
+                            ex.getMessage());
+                    return Mono.empty();
+                })
+                .thenReturn(result);
+    }
+
+    private Mono<Void> publishedAll(List<Review> reviews) {
+        return reviewEventLog.appendAll(reviews.stream().map(ReviewEvent::created).collect(Collectors.toList()))
+                .onErrorResume(ex -> {
+                    log.warn("CREATED events of {} imported reviews not stored : {}", reviews.size(), ex.getMessage());
+                    return Flux.empty();
+                })
+                .then();
+    }
+
     private void validate(Review review) {
         var constraintValidations = validator.validate(review);
         log.info("constraintValidations : {}", constraintValidations);
         if (!constraintValidations.isEmpty()) {
-            var errorMessage = constraintValidations
-                    .stream()
-                    .map(ConstraintViolation::getMessage)
-                    .sorted()
-                    .collect(Collectors.joining(","));
-            throw new ReviewDataException(errorMessage);
+            throw new ReviewDataException(messageOf(constraintValidations));
+        }
+    }
+
+    private static String messageOf(Set<ConstraintViolation<Review>> constraintValidations) {
+        return constraintValidations
+                .stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * NDJSON body of reviews, read line by line as it comes in, answered with one NDJSON outcome per non blank line
+     * in the same order. Valid reviews are inserted reviews.bulk.batchSize at a time and the lines of the next batch
+     * are only read once the previous one is written, so the body is never held in memory. The CREATED events of a
+     * batch are stored with one write, imported reviews reach the streams and the leaderboard like the others.
+     */
+    public Mono<ServerResponse> bulkAddReviews(ServerRequest request) {
+        var outcomes = request.bodyToFlux(String.class)
+                .index()
+                .filter(line -> !line.getT2().isBlank())
+                .map(line -> parse(line.getT1() + 1, line.getT2()))
+                .buffer(bulkBatchSize)
+                .concatMap(this::insertBatch);
+
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(outcomes, BulkReviewOutcome.class);
+    }
+
+    private BulkLine parse(long line, String json) {
+        try {
+            var review = objectMapper.readValue(json, Review.class);
+            var constraintValidations = validator.validate(review);
+            if (!constraintValidations.isEmpty()) {
+                return new BulkLine(line, null, messageOf(constraintValidations));
+            }
+            return new BulkLine(line, review, null);
+        } catch (JsonProcessingException ex) {
+            return new BulkLine(line, null, "Invalid JSON : " + ex.getOriginalMessage());
+        }
+    }
+
+    private Flux<BulkReviewOutcome> insertBatch(List<BulkLine> lines) {
+        var reviews = lines.stream()
+                .filter(line -> line.review != null)
+                .map(line -> line.review)
+                .collect(Collectors.toList());
+        if (reviews.isEmpty()) {
+            return Flux.fromIterable(lines).map(line -> BulkReviewOutcome.rejected(line.line, line.error));
         }
+
+        return reviewReactiveRepository.insertUnordered(reviews)
+                .flatMapMany(failures -> {
+                    var outcomes = new ArrayList<BulkReviewOutcome>(lines.size());
+                    var inserted = new ArrayList<Review>(reviews.size());
+                    var position = 0;
+                    for (BulkLine line : lines) {
+                        if (line.review == null) {
+                            outcomes.add(BulkReviewOutcome.rejected(line.line, line.error));
+                            continue;
+                        }
+                        var failure = failures.get(position++);
+                        if (failure == null) {
+                            inserted.add(line.review);
+                            outcomes.add(BulkReviewOutcome.inserted(line.line, line.review.getReviewId()));
+                        } else {
+                            outcomes.add(BulkReviewOutcome.rejected(line.line, failure.getMessage()));
+                        }
+                    }
+                    return reviewSummaryRepository.recordAdded(inserted)
+                            .then(publishedAll(inserted))
+                            .thenMany(Flux.fromIterable(outcomes));
+                });
+    }
+
+    @RequiredArgsConstructor
+    private static final class BulkLine {
+        private final long line;
+        private final Review review;
+        private final String error;
     }
 
+    /**
+     * One page of reviews, sort=recent (default) or sort=rating (needs a movieInfoId), limit= reviews per page
+     * and after= the cursor of the previous page. JSON pages that are full link to the next one.
+     */
     public Mono<ServerResponse> getReview(ServerRequest request) {
-        var movieInfoId = request.queryParam("movieInfoId");
+        var movieInfoId = longParam(request, "movieInfoId").orElse(null);
+        var fields = fields(request);
+        var sort = sort(request);
+        if (sort == ReviewSort.RATING && movieInfoId == null) {
+            throw new ReviewDataException("sort=rating needs a movieInfoId");
+        }
+        var limit = Math.min(Math.max(intParam(request, "limit").orElse(DEFAULT_PAGE_LIMIT), 1),
+                MAX_PAGE_LIMIT);
+        var after = request.queryParam("after").map(ReviewHandler::cursor).orElse(null);
+
+        return tagged(request, reviewReactiveRepository.findReviewPage(movieInfoId, sort, after, limit, fields),
+                reviews -> reviews.size() < limit ? null : ReviewCursor.of(sort, reviews.get(reviews.size() - 1)));
+    }
+
+    /**
+     * movieInfoIds=1,2,3 (or repeated) : the perMovie most recent reviews of each movie, streamed as one NDJSON line
+     * per movie in the order asked.
+     */
+    public Mono<ServerResponse> getReviewsByMovies(ServerRequest request) {
+        List<Long> movieInfoIds = request.queryParams().getOrDefault("movieInfoIds", List.of()).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(movieInfoId -> !movieInfoId.isEmpty())
+                .map(movieInfoId -> toLong("movieInfoIds", movieInfoId))
+                .distinct()
+                .collect(Collectors.toList());
+        if (movieInfoIds.isEmpty() || movieInfoIds.size() > MAX_MOVIES) {
+            throw new ReviewDataException("movieInfoIds takes 1 to " + MAX_MOVIES + " ids");
+        }
+        var perMovie = Math.min(Math.max(intParam(request, "perMovie")
+                .orElse(DEFAULT_PER_MOVIE), 1), MAX_PER_MOVIE);
+        var fields = fields(request);
+
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(reviewReactiveRepository.findRecentReviews(movieInfoIds, perMovie, fields), MovieReviews.class);
+    }
+
+    /**
+     * JSON lists are tagged with a digest of the review ids and versions and answered with 304 when the
+     * client already has them, NDJSON is streamed untagged.
+     */
+    private Mono<ServerResponse> tagged(ServerRequest request, Flux<Review> reviewsFlux,
+                                        Function<List<Review>, ReviewCursor> nextCursor) {
+        var ndjson = request.headers().accept().stream()
+                .anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+        if (ndjson) {
+            return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(reviewsFlux, Review.class);
+        }
+
+        return reviewsFlux.collectList()
+                .flatMap(reviews -> {
+                    var tags = reviews.stream()
+                            .map(review -> review.getReviewId() + ":" + review.getVersion())
+                            .collect(Collectors.joining(","));
+                    var fields = request.queryParams().getOrDefault("fields", List.of());
+                    var eTag = "\"" + DigestUtils.md5DigestAsHex((tags + fields).getBytes(StandardCharsets.UTF_8)) + "\"";
+
+                    var next = nextCursor.apply(reviews);
+
+                    return request.checkNotModified(eTag)
+                            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok()
+                                    .eTag(eTag)
+                                    .cacheControl(maxAge.isZero() ? CacheControl.noCache() : CacheControl.maxAge(maxAge))
+                                    .headers(headers -> {
+                                        if (next != null) {
+                                            headers.add(HttpHeaders.LINK, "<" + UriComponentsBuilder.fromUri(request.uri())
+                                                    .replaceQueryParam("after", next.encode())
+                                                    .build().toUriString() + ">; rel=\"next\"");
+                                        }
+                                    })
+                                    .bodyValue(reviews)));
+                });
+    }
+
+    private static Optional<Integer> intParam(ServerRequest request, String name) {
+        return request.queryParam(name).map(value -> {
+            try {
+                return Integer.valueOf(value.trim());
+            } catch (NumberFormatException ex) {
+                throw new ReviewDataException("Invalid " + name + " : " + value);
+            }
+        });
+    }
+
+    private static Optional<Long> longParam(ServerRequest request, String name) {
+        return request.queryParam(name).map(value -> toLong(name, value));
+    }
 
-        Flux<Review> reviewsFlux;
-        if (movieInfoId.isPresent()) {
-            reviewsFlux = reviewReactiveRepository.findReviewsByMovieInfoId(Long.valueOf(movieInfoId.get()));
-        } else {
-            reviewsFlux = reviewReactiveRepository.findAll();
+    private static Long toLong(String name, String value) {
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new ReviewDataException("Invalid " + name + " : " + value);
         }
+    }
+
+    private static ReviewSort sort(ServerRequest request) {
+        var sort = request.queryParam("sort").orElse("recent");
+        try {
+            return ReviewSort.valueOf(sort.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ReviewDataException("Unknown sort : " + sort);
+        }
+    }
 
-        return ServerResponse.ok().body(reviewsFlux, Review.class);
+    private static ReviewCursor cursor(String after) {
+        try {
+            return ReviewCursor.decode(after);
+        } catch (IllegalArgumentException ex) {
+            throw new ReviewDataException("Invalid cursor : " + after);
+        }
     }
 
+    /**
+     * fields=comment,rating style projection, empty when the whole Review is wanted.
+     */
+    private static Set<String> fields(ServerRequest request) {
+        var fields = request.queryParams().getOrDefault("fields", List.of()).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
+
+        var unknown = fields.stream()
+                .filter(field -> !PROJECTABLE_FIELDS.contains(field))
+                .sorted()
+                .collect(Collectors.joining(","));
+        if (!unknown.isEmpty()) {
+            throw new ReviewDataException("Unknown fields : " + unknown);
+        }
+        return fields;
+    }
+
+    /**
+     * Sets the comment and the rating in one atomic write, two concurrent PUTs can no longer undo each other's
+     * summary change. With If-Match: "version" the write only happens if the review is still at that version,
+     * 412 otherwise.
+     */
     public Mono<ServerResponse> updateReview(ServerRequest request) {
         var reviewId = request.pathVariable("id");
+        var expectedVersion = expectedVersion(request);
+
+        return request.bodyToMono(Review.class)
+                .flatMap(reqReview -> reviewReactiveRepository.updateContent(reviewId, reqReview.getComment(),
+                                reqReview.getRating(), expectedVersion)
+                        .switchIfEmpty(Mono.defer(() -> notUpdated(reviewId, expectedVersion)))
+                        .flatMap(previous -> {
+                            var updatedReview = new Review(reviewId, previous.getMovieInfoId(), reqReview.getComment(),
+                                    reqReview.getRating(), previous.getVersion() == null ? 1 : previous.getVersion() + 1);
+                            var recorded = Objects.equals(previous.getRating(), updatedReview.getRating())
+                                    ? Mono.<ReviewSummary>empty()
+                                    : reviewSummaryRepository.record(updatedReview.getMovieInfoId(),
+                                            previous.getRating(), updatedReview.getRating());
+                            return recorded.then(published(ReviewEvent.updated(updatedReview, previous),
+                                    updatedReview));
+                        }))
+                .flatMap(updatedReview -> ServerResponse.ok()
+                        .eTag(String.valueOf(updatedReview.getVersion()))
+                        .bodyValue(updatedReview));
+    }
 
-        var existingReview = reviewReactiveRepository.findById(reviewId)
-                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review ID " + reviewId)));
+    private static Long expectedVersion(ServerRequest request) {
+        var ifMatch = request.headers().firstHeader(HttpHeaders.IF_MATCH);
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        try {
+            return Long.valueOf(ifMatch.trim().replaceFirst("^W/", "").replace("\"", ""));
+        } catch (NumberFormatException ex) {
+            throw new ReviewDataException("Invalid If-Match : " + ifMatch);
+        }
+    }
 
-        return existingReview
-                .flatMap(review -> request.bodyToMono(Review.class)
-                        .map(reqReview -> {
-                            review.setComment(reqReview.getComment());
-                            review.setRating(reqReview.getRating());
-                            return review;
-                        })
-                )
-                .flatMap(reviewReactiveRepository::save)
-                .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview));
+    /**
+     * Nothing matched : the review is gone, or it is at another version than the If-Match one. Only the conditional
+     * case needs a second look to tell the two apart.
+     */
+    private Mono<Review> notUpdated(String reviewId, Long expectedVersion) {
+        var notFound = new ReviewNotFoundException("Review not found for the given Review ID " + reviewId);
+        if (expectedVersion == null) {
+            return Mono.error(notFound);
+        }
+        return reviewReactiveRepository.existsById(reviewId)
+                .flatMap(exists -> Mono.error(exists
+                        ? new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                                "Review " + reviewId + " is no longer at version " + expectedVersion)
+                        : notFound));
     }
 
     public Mono<ServerResponse> deleteReview(ServerRequest request) {
         var reviewId = request.pathVariable("id");
 
-        return reviewReactiveRepository.deleteById(reviewId)
+        return reviewReactiveRepository.deleteAndReturn(reviewId)
+                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review ID " + reviewId)))
+                .flatMap(review -> reviewSummaryRepository.record(review.getMovieInfoId(), review.getRating(), null)
+                        .thenReturn(review))
+                .flatMap(review -> published(ReviewEvent.deleted(review), review))
                 .then(ServerResponse.noContent().build());
     }
 
+    /**
+     * Rating summary of the movie, read as is : it is maintained by every review write.
+     */
+    public Mono<ServerResponse> getReviewSummary(ServerRequest request) {
+        var movieInfoId = longParam(request, "movieInfoId")
+                .orElseThrow(() -> new ReviewDataException("movieInfoId is required"));
+
+        return reviewSummaryRepository.findById(movieInfoId)
+                .defaultIfEmpty(ReviewSummary.empty(movieInfoId))
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    public Mono<ServerResponse> rebuildReviewSummaries(ServerRequest request) {
+        return reviewSummaryRepository.rebuild()
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    /**
+     * window= one of reviews.top.windows (7d by default), k= how many movies. Served from memory, see
+     * {@link TopRatedLeaderboard}.
+     */
+    public Mono<ServerResponse> getTopRated(ServerRequest request) {
+        var window = request.queryParam("window").map(ReviewHandler::window).orElse(DEFAULT_TOP_WINDOW);
+        if (!topRatedLeaderboard.windows().contains(window)) {
+            throw new ReviewDataException("Unsupported window : " + request.queryParam("window").orElse("7d")
+                    + ", supported : " + topRatedLeaderboard.windows().stream()
+                    .map(ReviewHandler::label)
+                    .collect(Collectors.joining(",")));
+        }
+        var k = Math.min(Math.max(intParam(request, "k").orElse(DEFAULT_TOP_K), 1),
+                topRatedLeaderboard.maxK());
+
+        return ServerResponse.ok().bodyValue(topRatedLeaderboard.top(window, k));
+    }
+
+    private static String label(Duration window) {
+        if (window.toMinutes() % (24 * 60) == 0) {
+            return window.toDays() + "d";
+        }
+        return window.toMinutes() % 60 == 0 ? window.toHours() + "h" : window.toMinutes() + "m";
+    }
+
+    private static Duration window(String window) {
+        try {
+            return DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException ex) {
+            throw new ReviewDataException("Invalid window : " + window);
+        }
+    }
+
+    /**
+     * New reviews, of every movie or with movieInfoId= of that movie only. See {@link #events(ServerRequest)} for
+     * resuming after a disconnect.
+     */
     public Mono<ServerResponse> getReviewsStream(ServerRequest serverRequest) {
+        var events = reviewsStreamFanOut.subscribe(events(serverRequest)
+                        .filter(event -> event.getType() == ReviewEventType.CREATED))
+                .transform(signalTracer.flux("reviews.stream"));
+        return streamed(serverRequest, events, ReviewEvent::getReview, Review.class);
+    }
+
+    /**
+     * Every write, creations as well as updates and deletes, of every movie or with movieInfoId= of that movie only.
+     */
+    public Mono<ServerResponse> getReviewEvents(ServerRequest serverRequest) {
+        var events = reviewsStreamFanOut.subscribe(events(serverRequest))
+                .transform(signalTracer.flux("reviews.events"));
+        return streamed(serverRequest, events, Function.identity(), ReviewEvent.class);
+    }
+
+    /**
+     * NDJSON by default. As text/event-stream every element carries the sequence of its event as its id, which is
+     * what an EventSource sends back as Last-Event-ID when it reconnects.
+     */
+    private <T> Mono<ServerResponse> streamed(ServerRequest serverRequest, Flux<ReviewEvent> events,
+                                              Function<ReviewEvent, T> payload, Class<T> payloadClass) {
+        var eventStream = serverRequest.headers().accept().stream()
+                .anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM));
+        if (eventStream) {
+            return ServerResponse.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(BodyInserters.fromServerSentEvents(events.map(event -> ServerSentEvent.builder(payload.apply(event))
+                            .id(String.valueOf(event.getSequence()))
+                            .build())));
+        }
         return ServerResponse.ok()
                 .contentType(MediaType.APPLICATION_NDJSON)
-                .body(reviewsSink.asFlux(), Review.class)
-                .log();
+                .body(events.map(payload), payloadClass);
+    }
+
+    /**
+     * Live events, preceded by the stored events after the sequence given as Last-Event-ID or since= when there is
+     * one. The live subscription is taken first, then the stored events are replayed up to what the event log had
+     * released by then, and the live ones after that follow, so nothing written in between is missed or sent twice.
+     * At most reviews.stream.history.maxPending live events wait for the replay, past that the stream completes and
+     * the client resumes from the last event it got.
+     */
+    private Flux<ReviewEvent> events(ServerRequest serverRequest) {
+        var movieInfoId = longParam(serverRequest, "movieInfoId").orElse(null);
+        var live = movieInfoId == null ? reviewsSink.asFlux() : reviewsByMovieSinks.asFlux(movieInfoId);
+        var since = since(serverRequest);
+        if (since == null) {
+            return live;
+        }
+
+        return Flux.defer(() -> {
+            var pending = Sinks.many().unicast()
+                    .<ReviewEvent>onBackpressureBuffer(new ArrayBlockingQueue<>(maxPending));
+            var liveSubscription = live
+                    .filter(event -> event.getSequence() > since)
+                    .subscribe(event -> {
+                        // a full queue fails with FAIL_ZERO_SUBSCRIBER until the replay is done, FAIL_OVERFLOW after
+                        if (pending.tryEmitNext(event).isFailure()) {
+                            pending.tryEmitComplete();
+                        }
+                    }, pending::tryEmitError, pending::tryEmitComplete);
+            // the log releases a sequence before emitting it, so anything the live subscription missed is up to here
+            var releasedUpTo = reviewEventLog.releasedUpTo();
+            var replay = since < releasedUpTo
+                    ? reviewEventLog.since(since, releasedUpTo, movieInfoId)
+                    : Flux.<ReviewEvent>empty();
+            return Flux.concat(replay,
+                            pending.asFlux()
+                                    .filter(event -> event.getSequence() > releasedUpTo))
+                    .doFinally(signalType -> liveSubscription.dispose());
+        });
+    }
+
+    private static Long since(ServerRequest serverRequest) {
+        var since = Optional.ofNullable(serverRequest.headers().firstHeader(LAST_EVENT_ID))
+                .or(() -> serverRequest.queryParam("since"))
+                .orElse(null);
+        if (since == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(since.trim());
+        } catch (NumberFormatException ex) {
+            throw new ReviewDataException("Invalid event id : " + since);
+        }
     }
 }
@@ -4,6 +4,6 @@ import com.reactivespring.domain.Review;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
-public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String> {
+public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String>, ReviewReactiveRepositoryCustom {
     Flux<Review> findReviewsByMovieInfoId(Long movieInfoId);
 }
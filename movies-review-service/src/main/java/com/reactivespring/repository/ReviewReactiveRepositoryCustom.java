@@ -0,0 +1,59 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.MovieReviews;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewCursor;
+import com.reactivespring.domain.ReviewSort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface ReviewReactiveRepositoryCustom {
+
+    /**
+     * One page of the reviews of the movie (of every movie for a null movieInfoId) in the given order, starting
+     * after the cursor (from the top for a null one). A non empty fields loads only those fields plus the id and
+     * version. Both orders run on an index led by movieInfoId, a page deep down costs the same as the first one.
+     */
+    Flux<Review> findReviewPage(Long movieInfoId, ReviewSort sort, ReviewCursor after, int limit, Set<String> fields);
+
+    /**
+     * The perMovie most recent reviews of each movie, one group per movie in the order of the ids (empty groups
+     * included).
+     */
+    Flux<MovieReviews> findRecentReviews(List<Long> movieInfoIds, int perMovie, Set<String> fields);
+
+    /**
+     * Id, movieInfoId and rating of the reviews whose ObjectId was generated from from and before to, reviews with
+     * other ids carry no time and are left out.
+     */
+    Flux<Review> findCreatedBetween(Instant from, Instant to);
+
+    /**
+     * Inserts new reviews with one unordered insertMany, a failed review (an id that is taken, ...) doesn't stop the
+     * others. Reviews without an id get one. Returns the failures by position in the list.
+     */
+    Mono<Map<Integer, Throwable>> insertUnordered(List<Review> reviews);
+
+    /**
+     * Sets the comment and the rating of the review and bumps its version in a single findAndModify, only if its
+     * version is still expectedVersion when one is given. Returns the review as it was before, empty when nothing
+     * matched.
+     */
+    Mono<Review> updateContent(String reviewId, String comment, Double rating, Long expectedVersion);
+
+    /**
+     * Replaces the movieInfoId, comment and rating of the review with that id, or inserts it when there is none,
+     * bumping the version in a single findAndModify. Returns the review as it was before, empty when it was inserted.
+     */
+    Mono<Review> replace(Review review);
+
+    /**
+     * Deletes the review and returns it as it was, empty when there was none.
+     */
+    Mono<Review> deleteAndReturn(String reviewId);
+}
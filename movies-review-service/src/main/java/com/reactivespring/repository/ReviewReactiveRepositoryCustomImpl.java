@@ -0,0 +1,180 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.MovieReviews;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewCursor;
+import com.reactivespring.domain.ReviewSort;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class ReviewReactiveRepositoryCustomImpl implements ReviewReactiveRepositoryCustom {
+    private static final int MOVIE_QUERY_CONCURRENCY = 8;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Flux<Review> findReviewPage(Long movieInfoId, ReviewSort sort, ReviewCursor after, int limit,
+                                       Set<String> fields) {
+        var criteria = new ArrayList<Criteria>();
+        if (movieInfoId != null) {
+            criteria.add(where("movieInfoId").is(movieInfoId));
+        }
+
+        Sort order;
+        if (sort == ReviewSort.RATING) {
+            // rating desc leaves the reviews without one at the end
+            order = Sort.by(Sort.Order.desc("rating"), Sort.Order.asc("reviewId"));
+            if (after != null) {
+                criteria.add(after.getRating() == null
+                        ? new Criteria().andOperator(where("rating").is(null), after(after.getReviewId()))
+                        : new Criteria().orOperator(
+                                where("rating").lt(after.getRating()),
+                                new Criteria().andOperator(where("rating").is(after.getRating()),
+                                        after(after.getReviewId())),
+                                where("rating").is(null)));
+            }
+        } else {
+            order = Sort.by(Sort.Order.desc("reviewId"));
+            if (after != null) {
+                criteria.add(before(after.getReviewId()));
+            }
+        }
+
+        var query = new Query(criteria.isEmpty()
+                ? new Criteria()
+                : new Criteria().andOperator(criteria.toArray(Criteria[]::new)))
+                .with(order)
+                .limit(limit);
+        if (fields != null && !fields.isEmpty()) {
+            query.fields().include(fields.toArray(String[]::new)).include("version");
+        }
+
+        return reactiveMongoTemplate.find(query, Review.class);
+    }
+
+    /**
+     * One capped seek on the movieInfoId_id index per movie rather than a single $in : mongo can only cap an $in
+     * as a whole, so capping it per movie would read every review of the popular ones. The seeks run side by side
+     * and come back in the order of the ids.
+     */
+    @Override
+    public Flux<MovieReviews> findRecentReviews(List<Long> movieInfoIds, int perMovie, Set<String> fields) {
+        return Flux.fromIterable(movieInfoIds)
+                .flatMapSequential(movieInfoId -> findReviewPage(movieInfoId, ReviewSort.RECENT, null, perMovie, fields)
+                        .collectList()
+                        .map(reviews -> new MovieReviews(movieInfoId, reviews)), MOVIE_QUERY_CONCURRENCY);
+    }
+
+    @Override
+    public Flux<Review> findCreatedBetween(Instant from, Instant to) {
+        var query = new Query(where("reviewId").gte(firstIdAt(from)).lt(firstIdAt(to)));
+        query.fields().include("movieInfoId").include("rating");
+        return reactiveMongoTemplate.find(query, Review.class);
+    }
+
+    /**
+     * The lowest ObjectId of the second of instant, ObjectIds only carry seconds.
+     */
+    private static ObjectId firstIdAt(Instant instant) {
+        return new ObjectId(String.format("%08x%016x", instant.getEpochSecond(), 0));
+    }
+
+    @Override
+    public Mono<Map<Integer, Throwable>> insertUnordered(List<Review> reviews) {
+        var documents = reviews.stream()
+                .map(review -> {
+                    if (review.getReviewId() == null) {
+                        review.setReviewId(new ObjectId().toHexString());
+                    }
+                    // what save() would have set on a new review
+                    review.setVersion(0L);
+                    var document = new Document();
+                    reactiveMongoTemplate.getConverter().write(review, document);
+                    return document;
+                })
+                .collect(Collectors.toList());
+
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(Review.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(result -> Map.<Integer, Throwable>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex,
+                                error -> new IllegalStateException("Review insert failed : " + error.getMessage())))));
+    }
+
+    @Override
+    public Mono<Review> updateContent(String reviewId, String comment, Double rating, Long expectedVersion) {
+        var criteria = where("reviewId").is(reviewId);
+        if (expectedVersion != null) {
+            criteria = criteria.and("version").is(expectedVersion);
+        }
+        var update = new Update()
+                .set("comment", comment)
+                .set("rating", rating)
+                .inc("version", 1);
+
+        return reactiveMongoTemplate.findAndModify(new Query(criteria), update, Review.class);
+    }
+
+    @Override
+    public Mono<Review> replace(Review review) {
+        var update = new Update()
+                .set("movieInfoId", review.getMovieInfoId())
+                .set("comment", review.getComment())
+                .set("rating", review.getRating())
+                .inc("version", 1);
+
+        return reactiveMongoTemplate.findAndModify(new Query(where("reviewId").is(review.getReviewId())), update,
+                FindAndModifyOptions.options().upsert(true), Review.class);
+    }
+
+    @Override
+    public Mono<Review> deleteAndReturn(String reviewId) {
+        return reactiveMongoTemplate.findAndRemove(new Query(where("reviewId").is(reviewId)), Review.class);
+    }
+
+    /**
+     * Ids are either ObjectIds (generated) or plain strings (given by the caller), and mongo orders every string
+     * before every ObjectId while $gt and $lt only match ids of the cursor's own type, hence the type clauses.
+     */
+    private static Criteria after(String reviewId) {
+        if (ObjectId.isValid(reviewId)) {
+            return where("reviewId").gt(reviewId);
+        }
+        return new Criteria().orOperator(
+                where("reviewId").gt(reviewId),
+                where("reviewId").type(JsonSchemaObject.Type.OBJECT_ID));
+    }
+
+    private static Criteria before(String reviewId) {
+        if (!ObjectId.isValid(reviewId)) {
+            return where("reviewId").lt(reviewId);
+        }
+        return new Criteria().orOperator(
+                where("reviewId").lt(reviewId),
+                where("reviewId").type(JsonSchemaObject.Type.STRING));
+    }
+}
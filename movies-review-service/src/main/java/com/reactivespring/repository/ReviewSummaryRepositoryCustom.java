@@ -0,0 +1,34 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ReviewSummaryRepositoryCustom {
+
+    /**
+     * Moves the summary of the movie from a review rated removedRating to one rated addedRating, either may be null
+     * (a new review, a deleted one, an unrated one). One $inc upsert, plus, when the removed rating was the min or
+     * the max, an index seek for the new lowest and highest ratings of the movie.
+     */
+    Mono<ReviewSummary> record(Long movieInfoId, Double removedRating, Double addedRating);
+
+    /**
+     * Adds new reviews to the summaries of their movies, one $inc upsert per movie however many reviews it got.
+     */
+    Mono<Void> recordAdded(List<Review> reviews);
+
+    /**
+     * Summary of the movie computed from its reviews, stored (or dropped when no review is rated any more) unless
+     * the summary was written meanwhile, then computed again.
+     */
+    Mono<ReviewSummary> recompute(Long movieInfoId);
+
+    /**
+     * Recomputes every summary from the reviews and drops the ones of movies without rated reviews, repairs any
+     * drift left by a review write whose summary update failed. Returns the number of summaries written.
+     */
+    Mono<Long> rebuild();
+}
@@ -0,0 +1,259 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@RequiredArgsConstructor
+public class ReviewSummaryRepositoryCustomImpl implements ReviewSummaryRepositoryCustom {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Mono<ReviewSummary> record(Long movieInfoId, Double removedRating, Double addedRating) {
+        if (removedRating == null && addedRating == null) {
+            return Mono.empty();
+        }
+
+        return reactiveMongoTemplate.findAndModify(query(where("movieInfoId").is(movieInfoId)),
+                        changes(removedRating == null ? List.of() : List.of(removedRating),
+                                addedRating == null ? List.of() : List.of(addedRating)),
+                        FindAndModifyOptions.options().returnNew(true).upsert(true), ReviewSummary.class)
+                .flatMap(summary -> {
+                    if (removedRating == null) {
+                        return Mono.just(summary);
+                    }
+                    if (summary.getCount() <= 0) {
+                        return dropped(summary);
+                    }
+                    // $inc can't take a rating back out of min and max
+                    if (summary.getMin() == null || removedRating <= summary.getMin()
+                            || removedRating >= summary.getMax()) {
+                        return withBounds(summary, MAX_ATTEMPTS);
+                    }
+                    return Mono.just(summary);
+                });
+    }
+
+    /**
+     * Sets min and max from the lowest and the highest rating of the movie, one seek each on movieInfoId_rating_id.
+     * Only applies if nothing was written since the summary was read, otherwise starts over from the new one.
+     */
+    private Mono<ReviewSummary> withBounds(ReviewSummary summary, int attempts) {
+        var movieInfoId = summary.getMovieInfoId();
+        return Mono.zip(boundRating(movieInfoId, Sort.Direction.ASC), boundRating(movieInfoId, Sort.Direction.DESC))
+                .flatMap(bounds -> reactiveMongoTemplate.findAndModify(query(atVersion(summary)),
+                                new Update().set("min", bounds.getT1()).set("max", bounds.getT2()).inc("version", 1),
+                                FindAndModifyOptions.options().returnNew(true), ReviewSummary.class)
+                        .switchIfEmpty(Mono.defer(() -> attempts <= 1
+                                ? reactiveMongoTemplate.findById(movieInfoId, ReviewSummary.class)
+                                : reactiveMongoTemplate.findById(movieInfoId, ReviewSummary.class)
+                                        .flatMap(latest -> withBounds(latest, attempts - 1)))))
+                .defaultIfEmpty(summary);
+    }
+
+    private Mono<Double> boundRating(Long movieInfoId, Sort.Direction direction) {
+        var lowestOrHighest = query(where("movieInfoId").is(movieInfoId).and("rating").ne(null))
+                .with(Sort.by(direction, "rating"))
+                .limit(1);
+        lowestOrHighest.fields().include("rating");
+        return reactiveMongoTemplate.findOne(lowestOrHighest, Review.class).map(Review::getRating);
+    }
+
+    /**
+     * Removes the summary of a movie left without rated reviews, unless a rating came in meanwhile.
+     */
+    private Mono<ReviewSummary> dropped(ReviewSummary summary) {
+        return reactiveMongoTemplate.remove(query(atVersion(summary)), ReviewSummary.class)
+                .thenReturn(ReviewSummary.empty(summary.getMovieInfoId()));
+    }
+
+    private static Criteria atVersion(ReviewSummary summary) {
+        var criteria = where("movieInfoId").is(summary.getMovieInfoId());
+        // summaries written before they had a version read as version 0
+        return summary.getVersion() == 0
+                ? criteria.orOperator(where("version").is(0L), where("version").exists(false))
+                : criteria.and("version").is(summary.getVersion());
+    }
+
+    @Override
+    public Mono<Void> recordAdded(List<Review> reviews) {
+        Map<Long, List<Double>> ratings = reviews.stream()
+                .filter(review -> review.getRating() != null)
+                .collect(Collectors.groupingBy(Review::getMovieInfoId, LinkedHashMap::new,
+                        Collectors.mapping(Review::getRating, Collectors.toList())));
+
+        return Flux.fromIterable(ratings.entrySet())
+                .concatMap(movieRatings -> reactiveMongoTemplate.upsert(
+                        query(where("movieInfoId").is(movieRatings.getKey())),
+                        changes(List.of(), movieRatings.getValue()), ReviewSummary.class))
+                .then();
+    }
+
+    private static Update changes(List<Double> removedRatings, List<Double> addedRatings) {
+        long count = 0;
+        double sum = 0;
+        // two ratings in the same bucket would $inc the same path twice, which mongo refuses
+        var histogram = new HashMap<String, Long>();
+        var update = new Update();
+        for (Double rating : removedRatings) {
+            count--;
+            sum -= rating;
+            histogram.merge(ReviewSummary.bucketOf(rating), -1L, Long::sum);
+        }
+        for (Double rating : addedRatings) {
+            count++;
+            sum += rating;
+            histogram.merge(ReviewSummary.bucketOf(rating), 1L, Long::sum);
+        }
+        if (!addedRatings.isEmpty()) {
+            update.min("min", Collections.min(addedRatings)).max("max", Collections.max(addedRatings));
+        }
+        update.inc("count", count).inc("sum", sum).inc("version", 1);
+        histogram.forEach((bucket, delta) -> {
+            if (delta != 0) {
+                update.inc("histogram." + bucket, delta);
+            }
+        });
+        return update;
+    }
+
+    @Override
+    public Mono<ReviewSummary> recompute(Long movieInfoId) {
+        return recompute(movieInfoId, MAX_ATTEMPTS);
+    }
+
+    /**
+     * The summary read first gives the version the computed one replaces, a write in between makes the replacement
+     * miss and the computation start over.
+     */
+    private Mono<ReviewSummary> recompute(Long movieInfoId, int attempts) {
+        return reactiveMongoTemplate.findById(movieInfoId, ReviewSummary.class)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(stored -> summarize(where("movieInfoId").is(movieInfoId))
+                        .next()
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(computed -> replaced(movieInfoId, stored, computed)))
+                .switchIfEmpty(Mono.defer(() -> attempts <= 1
+                        ? reactiveMongoTemplate.findById(movieInfoId, ReviewSummary.class)
+                                .defaultIfEmpty(ReviewSummary.empty(movieInfoId))
+                        : recompute(movieInfoId, attempts - 1)));
+    }
+
+    /**
+     * Empty when the stored summary moved on since it was read.
+     */
+    private Mono<ReviewSummary> replaced(Long movieInfoId, Optional<ReviewSummary> stored,
+                                         Optional<ReviewSummary> computed) {
+        if (computed.isEmpty()) {
+            return stored.map(summary -> reactiveMongoTemplate.remove(query(atVersion(summary)), ReviewSummary.class)
+                            .filter(result -> result.getDeletedCount() > 0)
+                            .map(result -> ReviewSummary.empty(movieInfoId)))
+                    .orElse(Mono.just(ReviewSummary.empty(movieInfoId)));
+        }
+
+        var summary = computed.get();
+        if (stored.isEmpty()) {
+            summary.setVersion(1);
+            return reactiveMongoTemplate.insert(summary)
+                    .onErrorResume(DuplicateKeyException.class, ex -> Mono.empty());
+        }
+        return reactiveMongoTemplate.findAndModify(query(atVersion(stored.get())),
+                new Update()
+                        .set("count", summary.getCount())
+                        .set("sum", summary.getSum())
+                        .set("min", summary.getMin())
+                        .set("max", summary.getMax())
+                        .set("histogram", summary.getHistogram())
+                        .inc("version", 1),
+                FindAndModifyOptions.options().returnNew(true), ReviewSummary.class);
+    }
+
+    /**
+     * Every movie with reviews or with a summary is recomputed in turn, the same way as a single one, so a rebuild
+     * neither overwrites nor drops a summary that changed while it ran.
+     */
+    @Override
+    public Mono<Long> rebuild() {
+        var reviewedMovies = reactiveMongoTemplate.aggregate(newAggregation(Review.class, group("movieInfoId"))
+                        .withOptions(AggregationOptions.builder().allowDiskUse(true).build()), Document.class)
+                .map(group -> group.get("_id"))
+                .filter(Number.class::isInstance)
+                .map(movieInfoId -> ((Number) movieInfoId).longValue());
+        var ids = new Query();
+        ids.fields().include("movieInfoId");
+        var summarizedMovies = reactiveMongoTemplate.find(ids, ReviewSummary.class)
+                .map(ReviewSummary::getMovieInfoId);
+
+        return Flux.concat(reviewedMovies, summarizedMovies)
+                .distinct()
+                .concatMap(this::recompute)
+                .filter(summary -> summary.getCount() > 0)
+                .count();
+    }
+
+    /**
+     * Summaries of the movies matching the criteria, one group per movie and whole rating folded per movie.
+     */
+    private Flux<ReviewSummary> summarize(Criteria criteria) {
+        var aggregation = newAggregation(Review.class,
+                match(criteria.and("rating").ne(null)),
+                project("movieInfoId", "rating").and(ArithmeticOperators.Floor.floorValueOf("rating")).as("bucket"),
+                group("movieInfoId", "bucket").count().as("count").sum("rating").as("sum")
+                        .min("rating").as("min").max("rating").as("max"),
+                sort(Sort.Direction.ASC, "movieInfoId"))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        return reactiveMongoTemplate.aggregate(aggregation, Document.class)
+                .bufferUntilChanged(bucket -> bucket.get("_id", Document.class).get("movieInfoId"))
+                .map(ReviewSummaryRepositoryCustomImpl::fold);
+    }
+
+    private static ReviewSummary fold(List<Document> buckets) {
+        var movieInfoId = buckets.get(0).get("_id", Document.class).get("movieInfoId");
+        var summary = ReviewSummary.empty(((Number) movieInfoId).longValue());
+        for (Document bucket : buckets) {
+            var count = ((Number) bucket.get("count")).longValue();
+            var min = ((Number) bucket.get("min")).doubleValue();
+            var max = ((Number) bucket.get("max")).doubleValue();
+            summary.setCount(summary.getCount() + count);
+            summary.setSum(summary.getSum() + ((Number) bucket.get("sum")).doubleValue());
+            summary.setMin(summary.getMin() == null ? min : Math.min(summary.getMin(), min));
+            summary.setMax(summary.getMax() == null ? max : Math.max(summary.getMax(), max));
+            summary.getHistogram().put(ReviewSummary.bucketOf(min), count);
+        }
+        return summary;
+    }
+}
@@ -18,11 +18,17 @@ public class ReviewRouter {
         return route()
                 .nest(path("/v1/reviews"), builder -> {
                     builder
+                            .GET("/summary", reviewHandler::getReviewSummary)
+                            .GET("/movies", reviewHandler::getReviewsByMovies)
+                            .GET("/top", reviewHandler::getTopRated)
+                            .GET("/stream", reviewHandler::getReviewsStream)
+                            .GET("/events", reviewHandler::getReviewEvents)
+                            .POST("/summary/rebuild", reviewHandler::rebuildReviewSummaries)
+                            .POST("/bulk", reviewHandler::bulkAddReviews)
                             .POST(reviewHandler::addReview)
                             .GET(reviewHandler::getReview)
                             .PUT("/{id}", reviewHandler::updateReview)
-                            .DELETE("/{id}", reviewHandler::deleteReview)
-                            .GET("/stream", reviewHandler::getReviewsStream);
+                            .DELETE("/{id}", reviewHandler::deleteReview);
                 })
 
                 .GET("/v1/helloworld", (request -> ServerResponse.ok().bodyValue("helloworld")))
@@ -0,0 +1,135 @@
+package com.reactivespring.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hands a hot stream out to its subscribers, each one with its own bounded queue, so a slow
+ * consumer only ever hurts itself instead of buffering without limit or stalling the emitter.
+ */
+@Slf4j
+public class BoundedFanOut {
+
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST,
+        DISCONNECT
+    }
+
+    private final String name;
+    private final int bufferSize;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxSubscribers;
+    private final Duration heartbeatInterval;
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter dropped;
+    private final Counter disconnected;
+    private final Counter rejected;
+    private final DistributionSummary queueDepth;
+    private final DistributionSummary dropsPerSubscriber;
+
+    public BoundedFanOut(String name, int bufferSize, OverflowPolicy overflowPolicy, int maxSubscribers,
+                         Duration heartbeatInterval, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.bufferSize = bufferSize;
+        this.overflowPolicy = overflowPolicy;
+        this.maxSubscribers = maxSubscribers;
+        this.heartbeatInterval = heartbeatInterval;
+
+        meterRegistry.gauge(name + ".subscribers", subscribers);
+        this.dropped = Counter.builder(name + ".dropped")
+                .tag("policy", overflowPolicy.name())
+                .register(meterRegistry);
+        this.disconnected = meterRegistry.counter(name + ".disconnected");
+        this.rejected = meterRegistry.counter(name + ".rejected");
+        this.queueDepth = DistributionSummary.builder(name + ".queue.depth")
+                .description("queue depth of a subscriber, sampled every time an element is queued")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.dropsPerSubscriber = DistributionSummary.builder(name + ".subscriber.drops")
+                .description("elements dropped for a subscriber over the lifetime of its connection")
+                .register(meterRegistry);
+    }
+
+    public <T> Flux<T> subscribe(Flux<T> source) {
+        return subscribe(source, null);
+    }
+
+    /**
+     * @param heartbeat element sent when nothing else was sent for heartbeatInterval, null for no heartbeats
+     */
+    public <T> Flux<T> subscribe(Flux<T> source, Supplier<T> heartbeat) {
+        return Flux.defer(() -> {
+            if (subscribers.incrementAndGet() > maxSubscribers) {
+                subscribers.decrementAndGet();
+                rejected.increment();
+                return Flux.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Too many subscribers on " + name));
+            }
+
+            var depth = new AtomicInteger();
+            var drops = new AtomicLong();
+            var lastSent = new AtomicLong(now());
+
+            Flux<T> elements = source;
+            if (heartbeat != null && !heartbeatInterval.isZero()) {
+                var heartbeats = Flux.interval(heartbeatInterval)
+                        .filter(tick -> now() - lastSent.get() >= heartbeatInterval.toNanos())
+                        .map(tick -> heartbeat.get());
+                elements = Flux.merge(source, heartbeats);
+            }
+
+            return elements
+                    .doOnNext(element -> queueDepth.record(depth.incrementAndGet()))
+                    .onBackpressureBuffer(bufferSize, droppedElement -> {
+                        depth.decrementAndGet();
+                        drops.incrementAndGet();
+                        dropped.increment();
+                    }, strategy())
+                    .doOnNext(element -> {
+                        depth.decrementAndGet();
+                        lastSent.set(now());
+                    })
+                    .onErrorResume(Exceptions::isOverflow, ex -> {
+                        log.info("Disconnecting slow subscriber from {} after {} queued elements", name, bufferSize);
+                        disconnected.increment();
+                        return Flux.empty();
+                    })
+                    .doFinally(signalType -> {
+                        subscribers.decrementAndGet();
+                        dropsPerSubscriber.record(drops.get());
+                    });
+        });
+    }
+
+    private static long now() {
+        // same clock as Flux.interval, so heartbeats line up with its ticks
+        return Schedulers.parallel().now(TimeUnit.NANOSECONDS);
+    }
+
+    private BufferOverflowStrategy strategy() {
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                return BufferOverflowStrategy.DROP_OLDEST;
+            case DROP_NEWEST:
+                return BufferOverflowStrategy.DROP_LATEST;
+            default:
+                return BufferOverflowStrategy.ERROR;
+        }
+    }
+}
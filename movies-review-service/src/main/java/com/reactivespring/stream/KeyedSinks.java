@@ -0,0 +1,51 @@
+package com.reactivespring.stream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One hot stream per key. The sink of a key is created by its first subscriber and dropped when its last
+ * subscriber leaves, so emitting for a key nobody listens to is a map lookup and nothing else.
+ */
+public class KeyedSinks<K, T> {
+
+    private final Map<K, Entry<T>> sinks = new ConcurrentHashMap<>();
+
+    public KeyedSinks(String name, MeterRegistry meterRegistry) {
+        meterRegistry.gaugeMapSize(name + ".keys", Tags.empty(), sinks);
+    }
+
+    public Sinks.EmitResult emit(K key, T element) {
+        var entry = sinks.get(key);
+        return entry == null ? Sinks.EmitResult.OK : entry.sink.tryEmitNext(element);
+    }
+
+    public Flux<T> asFlux(K key) {
+        return Flux.defer(() -> {
+            // compute() keeps the count and the removal of the entry atomic with regard to each other
+            var entry = sinks.compute(key, (k, existing) -> {
+                var current = existing == null ? new Entry<T>() : existing;
+                current.subscribers++;
+                return current;
+            });
+            return entry.sink.asFlux()
+                    .doFinally(signalType -> sinks.computeIfPresent(key,
+                            (k, existing) -> --existing.subscribers == 0 ? null : existing));
+        });
+    }
+
+    int size() {
+        return sinks.size();
+    }
+
+    private static final class Entry<T> {
+        // subscribers only ever request unbounded, each one has its own BoundedFanOut queue
+        private final Sinks.Many<T> sink = Sinks.many().multicast().directBestEffort();
+        private int subscribers;
+    }
+}
@@ -0,0 +1,225 @@
+package com.reactivespring.stream;
+
+import com.mongodb.MongoCommandException;
+import com.reactivespring.domain.ReviewEvent;
+import com.reactivespring.util.SerializedEmitter;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Every review event, kept in a capped collection : the oldest ones go once reviews.stream.history.maxEvents (or
+ * sizeBytes) is reached. Each instance follows the collection with one tailable cursor and feeds what it reads to
+ * its sinks, so live subscribers see the writes of every instance, and a subscriber that reconnects replays what
+ * it missed from the collection. Tailable cursors work on a standalone server, no replica set is needed.
+ *
+ * Sequences come from a counter, one range per appended batch, and are taken before the insert, so concurrent
+ * writes, of this instance or of another one, can land in the collection in the opposite order of their sequences.
+ * The sinks still get the events in sequence order : an event read ahead of a missing sequence is held until that
+ * one shows up, or until reviews.stream.history.gapTimeout has passed (its insert failed). A restarted cursor
+ * resumes after the last sequence released and skips the held events it reads again. The last event id a subscriber
+ * got is then a place it can resume from without missing anything still in the collection.
+ */
+@Component
+@Slf4j
+public class ReviewEventLog {
+    public static final String COLLECTION = "reviewEvents";
+    static final String SEQUENCES = "sequences";
+    private static final int NAMESPACE_EXISTS = 48;
+    private static final Duration FOREVER = Duration.ofMillis(Long.MAX_VALUE);
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final SerializedEmitter<ReviewEvent> reviewEventEmitter;
+    private final Mono<Void> collectionReady;
+    private final long maxHeld;
+    private final Duration gapTimeout;
+
+    // events read ahead of a missing sequence, by sequence, guarded by this
+    private final NavigableMap<Long, ReviewEvent> held = new TreeMap<>();
+    private volatile long releasedUpTo;
+    private long gapSince;
+    private Disposable tailSubscription;
+    private Disposable gapChecks;
+
+    public ReviewEventLog(ReactiveMongoTemplate reactiveMongoTemplate,
+                          SerializedEmitter<ReviewEvent> reviewEventEmitter,
+                          @Value("${reviews.stream.history.maxEvents:10000}") long maxEvents,
+                          @Value("${reviews.stream.history.sizeBytes:16777216}") long sizeBytes,
+                          @Value("${reviews.stream.history.gapTimeout:5s}") Duration gapTimeout) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.reviewEventEmitter = reviewEventEmitter;
+        this.maxHeld = maxEvents;
+        this.gapTimeout = gapTimeout;
+        // an insert into a missing collection would create a regular one, which cannot be tailed. Done once, unless
+        // it failed, then the next append tries again.
+        this.collectionReady = createCollection(maxEvents, sizeBytes)
+                .cache(unused -> FOREVER, ex -> Duration.ZERO, () -> FOREVER);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        tailSubscription = collectionReady
+                .then(lastStoredSequence())
+                .retryWhen(retry("Starting to tail"))
+                .doOnNext(sequence -> releasedUpTo = sequence)
+                .thenMany(Flux.defer(() -> tail(releasedUpTo))
+                        // the cursor dies when the collection is empty or when the last document it read ages out
+                        .repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                        .retryWhen(retry("Tailing")))
+                .subscribe(this::received);
+        // a gap nothing comes after is given up on all the same
+        gapChecks = Flux.interval(gapTimeout)
+                .subscribe(tick -> release());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (tailSubscription != null) {
+            tailSubscription.dispose();
+        }
+        if (gapChecks != null) {
+            gapChecks.dispose();
+        }
+    }
+
+    /**
+     * Every event up to this sequence has been handed to the sinks, or given up on.
+     */
+    public long releasedUpTo() {
+        return releasedUpTo;
+    }
+
+    synchronized void received(ReviewEvent event) {
+        var sequence = event.getSequence();
+        // a restarted cursor reads the held events again
+        if (sequence <= releasedUpTo || held.containsKey(sequence)) {
+            return;
+        }
+        held.put(sequence, event);
+        release();
+    }
+
+    synchronized void release() {
+        while (!held.isEmpty()) {
+            var next = held.firstKey();
+            if (next > releasedUpTo + 1 && !givesUpBefore(next)) {
+                return;
+            }
+            releasedUpTo = next;
+            gapSince = 0;
+            reviewEventEmitter.emit(held.pollFirstEntry().getValue());
+        }
+    }
+
+    private boolean givesUpBefore(long next) {
+        var now = System.nanoTime();
+        if (gapSince == 0) {
+            gapSince = now;
+        }
+        if (now - gapSince < gapTimeout.toNanos() && held.size() < maxHeld) {
+            return false;
+        }
+        log.warn("Review events {} to {} never showed up in {}, moving on", releasedUpTo + 1, next - 1, COLLECTION);
+        return true;
+    }
+
+    public Mono<ReviewEvent> append(ReviewEvent event) {
+        return appendAll(List.of(event)).next();
+    }
+
+    /**
+     * Stores the events with one insertMany, numbered in list order from one range of sequences taken with a single
+     * $inc, so a batch costs two round trips whatever its size.
+     */
+    public Flux<ReviewEvent> appendAll(List<ReviewEvent> events) {
+        if (events.isEmpty()) {
+            return Flux.empty();
+        }
+        return collectionReady
+                .then(reserveSequences(events.size()))
+                .flatMapMany(lastSequence -> {
+                    var firstSequence = lastSequence - events.size() + 1;
+                    for (int i = 0; i < events.size(); i++) {
+                        events.get(i).setSequence(firstSequence + i);
+                    }
+                    return reactiveMongoTemplate.insert(events, COLLECTION);
+                });
+    }
+
+    /**
+     * The stored events after the given sequence and up to upTo, of every movie or of movieInfoId only, in sequence
+     * order.
+     */
+    public Flux<ReviewEvent> since(long sequence, long upTo, Long movieInfoId) {
+        var criteria = where("sequence").gt(sequence).lte(upTo);
+        if (movieInfoId != null) {
+            criteria = criteria.and("review.movieInfoId").is(movieInfoId);
+        }
+        return reactiveMongoTemplate.find(query(criteria).with(Sort.by("sequence")), ReviewEvent.class, COLLECTION);
+    }
+
+    private Flux<ReviewEvent> tail(long after) {
+        return reactiveMongoTemplate.tail(query(where("sequence").gt(after)), ReviewEvent.class, COLLECTION);
+    }
+
+    private static Retry retry(String action) {
+        return Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                .maxBackoff(Duration.ofSeconds(30))
+                .doBeforeRetry(retrySignal -> log.warn("{} {} failed, retrying : {}",
+                        action, COLLECTION, retrySignal.failure().getMessage()));
+    }
+
+    private Mono<Long> lastStoredSequence() {
+        var query = new Query().with(Sort.by(Sort.Direction.DESC, "sequence")).limit(1);
+        return reactiveMongoTemplate.findOne(query, ReviewEvent.class, COLLECTION)
+                .map(ReviewEvent::getSequence)
+                .defaultIfEmpty(0L);
+    }
+
+    /**
+     * The last of count new sequences.
+     */
+    private Mono<Long> reserveSequences(int count) {
+        return reactiveMongoTemplate.findAndModify(query(where("_id").is(COLLECTION)),
+                        new Update().inc("value", (long) count),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        Document.class, SEQUENCES)
+                .map(document -> ((Number) document.get("value")).longValue());
+    }
+
+    private Mono<Void> createCollection(long maxEvents, long sizeBytes) {
+        return reactiveMongoTemplate.collectionExists(COLLECTION)
+                .flatMap(exists -> exists
+                        ? Mono.empty()
+                        : reactiveMongoTemplate.createCollection(COLLECTION,
+                                CollectionOptions.empty().capped().size(sizeBytes).maxDocuments(maxEvents)))
+                // another instance created it first
+                .onErrorResume(ex -> ex instanceof MongoCommandException
+                        && ((MongoCommandException) ex).getErrorCode() == NAMESPACE_EXISTS, ex -> Mono.empty())
+                .then(reactiveMongoTemplate.indexOps(COLLECTION).ensureIndex(new Index("sequence", Sort.Direction.ASC)))
+                .then();
+    }
+}
@@ -0,0 +1,57 @@
+package com.reactivespring.summary;
+
+import com.reactivespring.repository.ReviewSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * Rebuilds the rating summaries every reviews.summary.rebuildInterval (0s to only rebuild on demand through
+ * POST /v1/reviews/summary/rebuild), so that drift from a failed summary update does not last.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReviewSummaryRebuildJob {
+
+    private final ReviewSummaryRepository reviewSummaryRepository;
+
+    @Value("${reviews.summary.rebuildInterval:0s}")
+    private Duration rebuildInterval;
+
+    private Disposable rebuilds;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (rebuildInterval.isZero()) {
+            return;
+        }
+
+        rebuilds = Flux.interval(rebuildInterval, rebuildInterval)
+                // a rebuild still running when the next one is due is not started twice
+                .onBackpressureDrop()
+                .concatMap(tick -> reviewSummaryRepository.rebuild()
+                        .doOnNext(count -> log.info("Rebuilt {} review summaries", count))
+                        .onErrorResume(ex -> {
+                            log.warn("Review summary rebuild failed : {}", ex.getMessage());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuilds != null) {
+            rebuilds.dispose();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.reactivespring.top;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import com.reactivespring.domain.TopRatedMovie;
+import org.bson.types.ObjectId;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Top rated movies over sliding windows (the last 1d, 7d, ...) kept up to date review by review, so that reading
+ * one is handing out an already ranked list.
+ *
+ * Reviews count in the time bucket of their ObjectId, reviews with other ids carry no time and are left out. Each
+ * window keeps the totals of every movie over its buckets and a tree of the movies ordered by Bayesian average,
+ * (priorWeight * window mean + sum) / (priorWeight + count), so that two 10s do not outrank two hundred 9s. The window
+ * mean moves with every review but is only refreshed by {@link #advance()}, which is when every movie of the window
+ * is ranked again; in between a review re-ranks its movie only.
+ *
+ * Only the totals of every bucket and movie are kept, no review. Updates take back the rating their event says they
+ * replace and deletes the one of the deleted review. Events come once each, in sequence order, from the event log;
+ * one at or below the last sequence applied is skipped. Writes are serialized, reads are lock free.
+ */
+public class TopRatedLeaderboard {
+
+    private static final Comparator<TopRatedMovie> RANKING = Comparator
+            .comparingDouble(TopRatedMovie::getScore).reversed()
+            .thenComparing(Comparator.comparingLong(TopRatedMovie::getCount).reversed())
+            .thenComparing(TopRatedMovie::getMovieInfoId);
+
+    private final long bucketMillis;
+    private final double priorWeight;
+    private final int maxK;
+    private final Clock clock;
+    private final Map<Duration, Window> windows = new LinkedHashMap<>();
+    private final long retainedBuckets;
+
+    private final TreeMap<Long, Map<Long, Totals>> buckets = new TreeMap<>();
+    private long currentBucket;
+    private long lastSequence;
+    // reviews created before then are counted by the rebuild, not by their CREATED event
+    private Instant loadedBefore = Instant.MIN;
+
+    public TopRatedLeaderboard(List<Duration> windowSizes, Duration bucketSize, double priorWeight, int maxK,
+                               Clock clock) {
+        this.bucketMillis = bucketSize.toMillis();
+        this.priorWeight = priorWeight;
+        this.maxK = maxK;
+        this.clock = clock;
+        for (Duration windowSize : windowSizes) {
+            if (windowSize.toMillis() < bucketMillis || windowSize.toMillis() % bucketMillis != 0) {
+                throw new IllegalArgumentException("Window " + windowSize + " is not a multiple of the bucket size "
+                        + bucketSize);
+            }
+            windows.put(windowSize, new Window(windowSize.toMillis() / bucketMillis));
+        }
+        this.retainedBuckets = windows.values().stream().mapToLong(window -> window.buckets).max().orElse(1);
+        this.currentBucket = bucketOf(clock.instant());
+    }
+
+    public Set<Duration> windows() {
+        return Collections.unmodifiableSet(windows.keySet());
+    }
+
+    public int maxK() {
+        return maxK;
+    }
+
+    /**
+     * Reviews written since then are all it takes to fill every window.
+     */
+    public Instant retainedSince() {
+        return Instant.ofEpochMilli((bucketOf(clock.instant()) - retainedBuckets + 1) * bucketMillis);
+    }
+
+    public List<TopRatedMovie> top(Duration window, int k) {
+        var top = windows.get(window).top;
+        return top.subList(0, Math.min(k, top.size()));
+    }
+
+    public synchronized void apply(ReviewEvent event) {
+        if (event.getSequence() != 0) {
+            if (event.getSequence() <= lastSequence) {
+                return;
+            }
+            lastSequence = event.getSequence();
+        }
+
+        switch (event.getType()) {
+            case CREATED:
+                var createdAt = createdAt(event.getReviewId());
+                if (createdAt != null && !createdAt.isBefore(loadedBefore)) {
+                    count(event.getReview(), 1);
+                }
+                break;
+            case UPDATED:
+                if (event.getPrevious() != null) {
+                    count(event.getPrevious(), -1);
+                    count(event.getReview(), 1);
+                }
+                break;
+            case DELETED:
+                count(event.getReview(), -1);
+                break;
+            default:
+        }
+        publish();
+    }
+
+    /**
+     * Starts a rebuild : the reviews created before the returned instant are to be {@link #load(Review) loaded},
+     * the CREATED events of those are skipped from now on. The rebuild only reads the reviews as they are, so it can
+     * be off by the updates and deletes of those reviews made while it runs.
+     */
+    public synchronized Instant loading() {
+        // ObjectIds only carry seconds
+        loadedBefore = clock.instant().truncatedTo(ChronoUnit.SECONDS);
+        return loadedBefore;
+    }
+
+    public synchronized void load(Review review) {
+        count(review, 1);
+        publish();
+    }
+
+    /**
+     * Slides the windows to the current bucket, and re-ranks the ones that changed since the last time with their
+     * refreshed mean.
+     */
+    public synchronized void advance() {
+        var now = bucketOf(clock.instant());
+        while (currentBucket < now) {
+            currentBucket++;
+            for (Window window : windows.values()) {
+                var leaving = buckets.get(currentBucket - window.buckets);
+                if (leaving != null) {
+                    leaving.forEach((movieInfoId, totals) -> window.add(movieInfoId, -totals.count, -totals.sum));
+                }
+            }
+        }
+
+        var oldest = currentBucket - retainedBuckets + 1;
+        buckets.headMap(oldest).clear();
+        windows.values().forEach(Window::rerank);
+    }
+
+    private void count(Review review, int sign) {
+        var createdAt = createdAt(review.getReviewId());
+        if (createdAt == null || review.getMovieInfoId() == null || review.getRating() == null) {
+            return;
+        }
+        // a review can be a little ahead of this clock, its bucket is then already in every window
+        var bucket = bucketOf(createdAt);
+        if (bucket <= currentBucket - retainedBuckets) {
+            return;
+        }
+
+        long movieInfoId = review.getMovieInfoId();
+        double rating = review.getRating();
+        var bucketTotals = buckets.computeIfAbsent(bucket, key -> new HashMap<>());
+        var totals = bucketTotals.computeIfAbsent(movieInfoId, key -> new Totals());
+        totals.count += sign;
+        totals.sum += sign * rating;
+        if (totals.count == 0) {
+            bucketTotals.remove(movieInfoId);
+        }
+
+        for (Window window : windows.values()) {
+            if (bucket > currentBucket - window.buckets) {
+                window.add(movieInfoId, sign, sign * rating);
+            }
+        }
+    }
+
+    private void publish() {
+        windows.values().forEach(Window::publish);
+    }
+
+    private long bucketOf(Instant instant) {
+        return Math.floorDiv(instant.toEpochMilli(), bucketMillis);
+    }
+
+    private static Instant createdAt(String reviewId) {
+        return reviewId != null && ObjectId.isValid(reviewId) ? new ObjectId(reviewId).getDate().toInstant() : null;
+    }
+
+    private final class Window {
+        private final long buckets;
+        private final Map<Long, Totals> totals = new HashMap<>();
+        private final Map<Long, TopRatedMovie> ranks = new HashMap<>();
+        private final TreeSet<TopRatedMovie> ranked = new TreeSet<>(RANKING);
+        private long count;
+        private double sum;
+        private double mean;
+        private long rankedCount;
+        private double rankedSum;
+        private boolean changed;
+
+        // what readers see, replaced as a whole after every change
+        private volatile List<TopRatedMovie> top = List.of();
+
+        private Window(long buckets) {
+            this.buckets = buckets;
+        }
+
+        private void add(long movieInfoId, long deltaCount, double deltaSum) {
+            count += deltaCount;
+            sum += deltaSum;
+            var movieTotals = totals.computeIfAbsent(movieInfoId, id -> new Totals());
+            movieTotals.count += deltaCount;
+            movieTotals.sum += deltaSum;
+
+            var rank = ranks.remove(movieInfoId);
+            if (rank != null) {
+                ranked.remove(rank);
+            }
+            if (movieTotals.count <= 0) {
+                totals.remove(movieInfoId);
+            } else {
+                rank(movieInfoId, movieTotals);
+            }
+            changed = true;
+        }
+
+        private void rerank() {
+            if (count != rankedCount || sum != rankedSum) {
+                rankedCount = count;
+                rankedSum = sum;
+                mean = count > 0 ? sum / count : 0;
+                ranks.clear();
+                ranked.clear();
+                totals.forEach(this::rank);
+                changed = true;
+            }
+            // a slide can leave the window as it was ranked last time and still have changed it
+            publish();
+        }
+
+        private void rank(Long movieInfoId, Totals movieTotals) {
+            var rank = new TopRatedMovie(movieInfoId, movieTotals.count, movieTotals.sum / movieTotals.count,
+                    (priorWeight * mean + movieTotals.sum) / (priorWeight + movieTotals.count));
+            ranks.put(movieInfoId, rank);
+            ranked.add(rank);
+        }
+
+        private void publish() {
+            if (!changed) {
+                return;
+            }
+            var first = new ArrayList<TopRatedMovie>(Math.min(maxK, ranked.size()));
+            for (TopRatedMovie rank : ranked) {
+                if (first.size() == maxK) {
+                    break;
+                }
+                first.add(rank);
+            }
+            top = Collections.unmodifiableList(first);
+            changed = false;
+        }
+    }
+
+    private static final class Totals {
+        private long count;
+        private double sum;
+    }
+}
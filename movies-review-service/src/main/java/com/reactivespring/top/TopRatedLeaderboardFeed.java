@@ -0,0 +1,68 @@
+package com.reactivespring.top;
+
+import com.reactivespring.domain.ReviewEvent;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * Keeps the leaderboard current : review events of every instance as they come, the reviews of the longest window
+ * once at startup, and a slide of the windows every minute (or every bucket when they are shorter).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TopRatedLeaderboardFeed {
+    private static final Duration MAX_SLIDE_INTERVAL = Duration.ofMinutes(1);
+
+    private final TopRatedLeaderboard topRatedLeaderboard;
+    private final Sinks.Many<ReviewEvent> reviewsSink;
+    private final ReviewReactiveRepository reviewReactiveRepository;
+
+    @Value("${reviews.top.bucketSize:1h}")
+    private Duration bucketSize;
+
+    private Disposable events;
+    private Disposable slides;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // live events first, a review is then counted by its CREATED event or by the rebuild depending on its time
+        events = reviewsSink.asFlux()
+                .subscribe(topRatedLeaderboard::apply,
+                        ex -> log.warn("Top rated leaderboard stopped following review events : {}", ex.getMessage()));
+
+        reviewReactiveRepository.findCreatedBetween(topRatedLeaderboard.retainedSince(), topRatedLeaderboard.loading())
+                .doOnNext(topRatedLeaderboard::load)
+                .count()
+                .doFinally(signalType -> topRatedLeaderboard.advance())
+                .subscribe(
+                        count -> log.info("Top rated leaderboard built from {} reviews", count),
+                        ex -> log.warn("Top rated leaderboard build failed : {}", ex.getMessage())
+                );
+
+        var slideInterval = bucketSize.compareTo(MAX_SLIDE_INTERVAL) < 0 ? bucketSize : MAX_SLIDE_INTERVAL;
+        slides = Flux.interval(slideInterval, slideInterval)
+                .subscribe(tick -> topRatedLeaderboard.advance());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (events != null) {
+            events.dispose();
+        }
+        if (slides != null) {
+            slides.dispose();
+        }
+    }
+}
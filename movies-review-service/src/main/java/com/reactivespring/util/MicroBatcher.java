@@ -0,0 +1,131 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Gathers items submitted one at a time into batches of up to maxSize items, or of whatever arrived within the
+ * window, hands each batch to a single write and routes the outcome back to every submitter. Exports
+ * <name>.batch.size, <name>.batch.latency (time of a batch write), <name>.wait (submit to outcome) and
+ * <name>.rejected (items failed with a 503 because maxQueued batches were already waiting for a write).
+ * A zero window turns batching off, see {@link #isEnabled()}.
+ */
+public class MicroBatcher<T> {
+
+    private final DistributionSummary batchSize;
+    private final Timer batchLatency;
+    private final Timer wait;
+    private final Counter rejected;
+    private final Function<List<T>, Mono<Map<Integer, Throwable>>> writer;
+
+    private volatile FluxSink<Pending> sink;
+    private Disposable batches;
+
+    /**
+     * @param writer writes a batch and returns the failures by position in the batch, an error fails every item
+     */
+    public MicroBatcher(String name, int maxSize, Duration window, int concurrency, int maxQueued,
+                        Function<List<T>, Mono<Map<Integer, Throwable>>> writer, MeterRegistry meterRegistry) {
+        this.writer = writer;
+        this.batchSize = DistributionSummary.builder(name + ".batch.size")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchLatency = Timer.builder(name + ".batch.latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.wait = Timer.builder(name + ".wait")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = meterRegistry.counter(name + ".rejected");
+
+        if (!window.isZero()) {
+            var overloaded = new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many " + name + " batches waiting");
+            batches = Flux.<Pending>create(fluxSink -> sink = fluxSink)
+                    .bufferTimeout(maxSize, window)
+                    // bufferTimeout can't hold a batch back while the writes in flight are at the limit
+                    .onBackpressureBuffer(maxQueued, batch -> {
+                        rejected.increment(batch.size());
+                        batch.forEach(pending -> pending.complete(overloaded));
+                    }, BufferOverflowStrategy.DROP_LATEST)
+                    .flatMap(this::write, concurrency)
+                    .subscribe();
+        }
+    }
+
+    public boolean isEnabled() {
+        return sink != null;
+    }
+
+    public Mono<T> submit(T item) {
+        return Mono.defer(() -> {
+            var pending = new Pending(item);
+            // FluxSink serializes concurrent callers
+            sink.next(pending);
+            return pending.result.asMono();
+        });
+    }
+
+    public void close() {
+        if (batches != null) {
+            batches.dispose();
+        }
+    }
+
+    private Mono<Void> write(List<Pending> batch) {
+        batchSize.record(batch.size());
+        var items = batch.stream().map(pending -> pending.item).collect(Collectors.toList());
+        var start = System.nanoTime();
+
+        return Mono.defer(() -> writer.apply(items))
+                .defaultIfEmpty(Map.of())
+                .doOnNext(failures -> {
+                    batchLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).complete(failures.get(i));
+                    }
+                })
+                .onErrorResume(ex -> {
+                    batchLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    batch.forEach(pending -> pending.complete(ex));
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private final class Pending {
+        private final T item;
+        private final long submitted = System.nanoTime();
+        private final Sinks.One<T> result = Sinks.one();
+
+        private Pending(T item) {
+            this.item = item;
+        }
+
+        private void complete(Throwable failure) {
+            wait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+            if (failure == null) {
+                result.tryEmitValue(item);
+            } else {
+                result.tryEmitError(failure);
+            }
+        }
+    }
+}
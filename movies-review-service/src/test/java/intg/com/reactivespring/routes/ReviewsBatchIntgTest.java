@@ -0,0 +1,84 @@
+package com.reactivespring.routes;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEventType;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
+import com.reactivespring.stream.ReviewEventLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@TestPropertySource(properties = "reviews.insert.batch.window=20ms")
+class ReviewsBatchIntgTest {
+
+    private static final String REVIEWS_URL = "/v1/reviews";
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    @Autowired
+    ReviewSummaryRepository reviewSummaryRepository;
+
+    @Autowired
+    ReviewEventLog reviewEventLog;
+
+    @AfterEach
+    void tearDown() {
+        reviewReactiveRepository.deleteAll().block();
+        reviewSummaryRepository.deleteAll().block();
+    }
+
+    @Test
+    void addReview_batched() {
+        // when
+        var reviewIds = Flux.range(0, 20)
+                // exchange() blocks until the response, concurrent posts need threads of their own
+                .flatMap(i -> Mono.fromCallable(() -> webTestClient
+                                .post()
+                                .uri(REVIEWS_URL)
+                                .bodyValue(new Review(null, 1L, "Review " + i, (double) (i % 10)))
+                                .exchange()
+                                .expectStatus().isCreated()
+                                .expectBody(Review.class)
+                                .returnResult()
+                                .getResponseBody())
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .doOnNext(savedReview -> assertEquals(0L, savedReview.getVersion()))
+                .map(Review::getReviewId)
+                .collect(Collectors.toSet())
+                .block(Duration.ofSeconds(10));
+
+        // then
+        assertEquals(20, reviewReactiveRepository.findReviewsByMovieInfoId(1L).count().block());
+        var summary = reviewSummaryRepository.findById(1L).block();
+        assertEquals(20, summary.getCount());
+        assertEquals(90.0, summary.getSum());
+        assertEquals(2L, summary.getHistogram().get("9"));
+        // the capped collection outlives the tests, only this run's events count
+        var created = reviewEventLog.since(0, Long.MAX_VALUE, 1L)
+                .filter(event -> reviewIds.contains(event.getReviewId()))
+                .filter(event -> event.getType() == ReviewEventType.CREATED)
+                .count()
+                .block();
+        assertEquals(20, created);
+    }
+}
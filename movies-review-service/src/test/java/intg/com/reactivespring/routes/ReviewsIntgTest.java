@@ -1,19 +1,34 @@
 package com.reactivespring.routes;
 
+import com.reactivespring.domain.MovieReviews;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import com.reactivespring.domain.ReviewEventType;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
 
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -27,6 +42,9 @@ class ReviewsIntgTest {
     @Autowired
     ReviewReactiveRepository reviewReactiveRepository;
 
+    @Autowired
+    ReviewSummaryRepository reviewSummaryRepository;
+
     @BeforeEach
     void setUp() {
         var reviewsList = List.of(
@@ -40,6 +58,7 @@ class ReviewsIntgTest {
     @AfterEach
     void tearDown() {
         reviewReactiveRepository.deleteAll().block();
+        reviewSummaryRepository.deleteAll().block();
     }
 
     @Test
@@ -64,6 +83,31 @@ class ReviewsIntgTest {
         // then
     }
 
+    @Test
+    void addReview_existingId() {
+        // given
+        var existing = reviewReactiveRepository.save(new Review("def", 3L, "Good Movie", 7.0)).block();
+        var review = new Review("def", 3L, "Great Movie", 9.0);
+
+        // when
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.version").isEqualTo(existing.getVersion() + 1);
+
+        // then
+        StepVerifier.create(reviewReactiveRepository.findById("def"))
+                .assertNext(savedReview -> {
+                    assertEquals("Great Movie", savedReview.getComment());
+                    assertEquals(9.0, savedReview.getRating());
+                })
+                .verifyComplete();
+    }
+
     @Test
     void getReview() {
         // given
@@ -99,6 +143,136 @@ class ReviewsIntgTest {
         // then
     }
 
+    @Test
+    void getReview_pagesByRating() {
+        // given
+        var seen = new ArrayList<String>();
+        String next = REVIEWS_URL + "?movieInfoId=1&sort=rating&limit=1";
+
+        // when
+        while (next != null) {
+            var result = webTestClient
+                    .get()
+                    .uri(URI.create(next))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(Review.class)
+                    .returnResult();
+            result.getResponseBody().forEach(review -> seen.add(review.getReviewId()));
+            var link = result.getResponseHeaders().getFirst(HttpHeaders.LINK);
+            next = link == null ? null : link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        }
+
+        // then
+        assertEquals(2, seen.size());
+        assertEquals(2, new HashSet<>(seen).size());
+    }
+
+    @Test
+    void getReviewsByMovies() {
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/movies?movieInfoIds=2,1,3&perMovie=1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MovieReviews.class)
+                .value(movieReviews -> {
+                    assertEquals(List.of(2L, 1L, 3L), movieReviews.stream()
+                            .map(MovieReviews::getMovieInfoId).collect(Collectors.toList()));
+                    assertEquals(List.of(1, 1, 0), movieReviews.stream()
+                            .map(reviews -> reviews.getReviews().size()).collect(Collectors.toList()));
+                });
+
+        // then
+    }
+
+    @Test
+    void getReviewSummary_afterWrites() {
+        // given
+        reviewSummaryRepository.rebuild().block();
+
+        // when
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(new Review(null, 1L, "Bad Movie", 3.0))
+                .exchange()
+                .expectStatus().isCreated();
+
+        // then
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ReviewSummary.class)
+                .value(summary -> {
+                    assertEquals(3, summary.getCount());
+                    assertEquals(21.0, summary.getSum());
+                    assertEquals(3.0, summary.getMin());
+                    assertEquals(9.0, summary.getMax());
+                    assertEquals(2L, summary.getHistogram().get("9"));
+                });
+    }
+
+    @Test
+    void getReviewSummary_afterDeletingTheMin() {
+        // given
+        reviewSummaryRepository.rebuild().block();
+        var lowest = webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(new Review(null, 1L, "Bad Movie", 3.0))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Review.class)
+                .returnResult()
+                .getResponseBody();
+
+        // when
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", lowest.getReviewId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        // then
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ReviewSummary.class)
+                .value(summary -> {
+                    assertEquals(2, summary.getCount());
+                    assertEquals(9.0, summary.getMin());
+                    assertEquals(9.0, summary.getMax());
+                    assertEquals(0L, summary.getHistogram().getOrDefault("3", 0L));
+                });
+    }
+
+    @Test
+    void getReview_fields() {
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&fields=rating")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Review.class)
+                .value(reviews -> {
+                    assertEquals(2, reviews.size());
+                    reviews.forEach(review -> {
+                        assertNotNull(review.getRating());
+                        assertNull(review.getComment());
+                    });
+                });
+
+        // then
+    }
+
     @Test
     void updateReview() {
         // given
@@ -159,4 +333,77 @@ class ReviewsIntgTest {
                 .expectStatus().isNoContent();
 
     }
+
+    @Test
+    void updateReview_ifMatch() {
+        // given
+        var review = reviewReactiveRepository.save(new Review(null, 3L, "Good Movie", 7.0)).block();
+        assert review != null;
+        var reviewId = review.getReviewId();
+
+        // when
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", reviewId)
+                .header(HttpHeaders.IF_MATCH, "\"" + review.getVersion() + "\"")
+                .bodyValue(new Review(null, 3L, "Very good movie", 8.0))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + (review.getVersion() + 1) + "\"");
+
+        // then
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", reviewId)
+                .header(HttpHeaders.IF_MATCH, "\"" + review.getVersion() + "\"")
+                .bodyValue(new Review(null, 3L, "Not that good", 5.0))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        assertEquals(8.0, reviewSummaryRepository.findById(3L).block().getMax());
+    }
+
+    @Test
+    void deleteReview_notFound() {
+        // when
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", "unknown")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        // then
+    }
+
+    @Test
+    void getReviewEvents_replaysFromSequence() {
+        // given
+        // the event log is capped and cannot be emptied between tests, this movie is only used here
+        var movieInfoId = 77L;
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(new Review(null, movieInfoId, "Fine Movie", 6.0))
+                .exchange()
+                .expectStatus().isCreated();
+
+        // when
+        var events = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/events?since=0&movieInfoId={movieInfoId}", movieInfoId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(ReviewEvent.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(events)
+                .assertNext(event -> {
+                    assertEquals(ReviewEventType.CREATED, event.getType());
+                    assertEquals("Fine Movie", event.getReview().getComment());
+                    assertTrue(event.getSequence() > 0);
+                })
+                .thenCancel()
+                .verify();
+    }
 }
@@ -1,10 +1,30 @@
 package com.reactivespring.routes;
 
+import com.reactivespring.config.ErrorConfig;
+import com.reactivespring.config.LeaderboardConfig;
+import com.reactivespring.config.StreamConfig;
+import com.reactivespring.config.TracingConfig;
+import com.reactivespring.config.WriteConfig;
+import com.reactivespring.domain.BulkReviewOutcome;
+import com.reactivespring.domain.MovieReviews;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewCursor;
+import com.reactivespring.domain.ReviewEvent;
+import com.reactivespring.domain.ReviewEventType;
+import com.reactivespring.domain.ReviewSort;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.domain.TopRatedMovie;
+import com.reactivespring.top.TopRatedLeaderboard;
 import com.reactivespring.exceptionhandler.GlobalErrorHandler;
 import com.reactivespring.handler.ReviewHandler;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
 import com.reactivespring.router.ReviewRouter;
+import com.reactivespring.stream.ReviewEventLog;
+import com.reactivespring.util.SerializedEmitter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.mockito.stubbing.Answer;
@@ -13,20 +33,41 @@ import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWeb
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.net.URI;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
 
 
 @WebFluxTest
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class,
+        StreamConfig.class, TracingConfig.class, ErrorConfig.class, WriteConfig.class, LeaderboardConfig.class,
+        SimpleMeterRegistry.class})
 @AutoConfigureWebTestClient
 public class ReviewsUnitTest {
     private static final String REVIEWS_URL = "/v1/reviews";
@@ -34,9 +75,34 @@ public class ReviewsUnitTest {
     @MockBean
     private ReviewReactiveRepository reviewReactiveRepository;
 
+    @MockBean
+    private ReviewSummaryRepository reviewSummaryRepository;
+
+    @MockBean
+    private ReviewEventLog reviewEventLog;
+
+    @BeforeEach
+    void setUp() {
+        when(reviewSummaryRepository.record(any(), any(), any()))
+                .thenReturn(Mono.empty());
+        when(reviewEventLog.append(any()))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(reviewEventLog.appendAll(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<ReviewEvent>>getArgument(0)));
+    }
+
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private TopRatedLeaderboard topRatedLeaderboard;
+
+    @Autowired
+    private SerializedEmitter<ReviewEvent> reviewEventEmitter;
+
+    @Autowired
+    private ReviewHandler reviewHandler;
+
     @Test
     void addReview() {
         // given
@@ -62,6 +128,30 @@ public class ReviewsUnitTest {
         // then
     }
 
+    @Test
+    void addReview_existingId() {
+        // given
+        var review = new Review("abc", 1L, "Awesome Movie", 9.0);
+
+        when(reviewReactiveRepository.replace(isA(Review.class)))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Good Movie", 7.0, 2L)));
+
+        // when
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.comment").isEqualTo("Awesome Movie")
+                .jsonPath("$.version").isEqualTo(3);
+
+        // then
+        verify(reviewSummaryRepository).record(1L, 7.0, 9.0);
+        verify(reviewReactiveRepository, never()).save(isA(Review.class));
+    }
+
     @Test
     void addReview_validation() {
         // given
@@ -83,6 +173,46 @@ public class ReviewsUnitTest {
         // then
     }
 
+    @Test
+    void bulkAddReviews() {
+        // given
+        when(reviewReactiveRepository.insertUnordered(anyList()))
+                .thenAnswer(invocation -> {
+                    List<Review> reviews = invocation.getArgument(0);
+                    reviews.forEach(review -> review.setReviewId("id-" + review.getComment()));
+                    return Mono.just(Map.of());
+                });
+        when(reviewSummaryRepository.recordAdded(anyList()))
+                .thenReturn(Mono.empty());
+        var body = "{\"movieInfoId\":1, \"comment\":\"a\", \"rating\":9.0}\n"
+                + "{\"movieInfoId\":1, \"comment\":\"b\", \"rating\":-1.0}\n"
+                + "\n"
+                + "{not json\n"
+                + "{\"movieInfoId\":2, \"comment\":\"c\", \"rating\":7.0}\n";
+
+        // when
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BulkReviewOutcome.class)
+                .value(outcomes -> {
+                    assertEquals(4, outcomes.size());
+                    assertEquals(BulkReviewOutcome.inserted(1, "id-a"), outcomes.get(0));
+                    assertEquals("rating.negative : please pass a non-negative value", outcomes.get(1).getError());
+                    assertEquals(4, outcomes.get(2).getLine());
+                    assertNotNull(outcomes.get(2).getError());
+                    assertEquals(BulkReviewOutcome.inserted(5, "id-c"), outcomes.get(3));
+                });
+
+        // then
+        verify(reviewEventLog).appendAll(argThat(events -> events.size() == 2
+                && events.stream().allMatch(event -> event.getType() == ReviewEventType.CREATED)));
+    }
+
     @Test
     void getReview() {
         // given
@@ -91,7 +221,7 @@ public class ReviewsUnitTest {
                 new Review(null, 1L, "Awesome Movie1", 9.0),
                 new Review(null, 2L, "Excellent Movie", 8.0));
 
-        when(reviewReactiveRepository.findAll())
+        when(reviewReactiveRepository.findReviewPage(isNull(), eq(ReviewSort.RECENT), isNull(), eq(100), eq(Set.of())))
                 .thenReturn(Flux.fromIterable(reviewsList));
 
         // when
@@ -106,6 +236,116 @@ public class ReviewsUnitTest {
         // then
     }
 
+    @Test
+    void getReview_notModified() {
+        // given
+        when(reviewReactiveRepository.findReviewPage(isNull(), eq(ReviewSort.RECENT), isNull(), eq(100), eq(Set.of())))
+                .thenAnswer(invocation -> Flux.just(new Review("abc", 1L, "Awesome Movie", 9.0, 2L)));
+
+        // when
+        var eTag = webTestClient
+                .get()
+                .uri(REVIEWS_URL)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Review.class)
+                .getResponseHeaders().getETag();
+
+        // then
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL)
+                .header("If-None-Match", eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void getReview_nextPage() {
+        // given
+        when(reviewReactiveRepository.findReviewPage(eq(1L), eq(ReviewSort.RATING), isNull(), eq(2), eq(Set.of())))
+                .thenReturn(Flux.just(new Review("abc", 1L, "Awesome Movie", 9.0), new Review("def", 1L, "Good Movie", 7.0)));
+        when(reviewReactiveRepository.findReviewPage(eq(1L), eq(ReviewSort.RATING), eq(new ReviewCursor(7.0, "def")),
+                eq(2), eq(Set.of())))
+                .thenReturn(Flux.just(new Review("ghi", 1L, "Bad Movie", 2.0)));
+
+        // when
+        var link = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&sort=rating&limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Review.class)
+                .getResponseHeaders().getFirst(HttpHeaders.LINK);
+
+        // then
+        assertNotNull(link);
+        webTestClient
+                .get()
+                .uri(URI.create(link.substring(link.indexOf('<') + 1, link.indexOf('>'))))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.LINK)
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getReview_ratingNeedsMovieInfoId() {
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?sort=rating")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getReview_invalidLimit() {
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&limit=ten")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("Invalid limit : ten");
+    }
+
+    @Test
+    void getReview_fields() {
+        // given
+        when(reviewReactiveRepository.findReviewPage(eq(1L), eq(ReviewSort.RECENT), isNull(), eq(100), eq(Set.of("rating"))))
+                .thenReturn(Flux.just(new Review("abc", null, null, 9.0)));
+
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&fields=rating")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].rating").isEqualTo(9.0)
+                .jsonPath("$[0].comment").doesNotExist();
+
+        // then
+    }
+
+    @Test
+    void getReview_unknownField() {
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?fields=rating,author")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("Unknown fields : author");
+
+        // then
+    }
+
     @Test
     void updateReview() {
         // given
@@ -113,12 +353,9 @@ public class ReviewsUnitTest {
         var existingReview = new Review(reviewId, 1L, "Awesome Movie", 9.0);
         var updatedReview = new Review(reviewId, 1L, "Updated Awesome Movie", 9.5);
 
-        when(reviewReactiveRepository.findById(isA(String.class)))
+        when(reviewReactiveRepository.updateContent(eq(reviewId), eq("Updated Awesome Movie"), eq(9.5), isNull()))
                 .thenReturn(Mono.just(existingReview));
 
-        when(reviewReactiveRepository.save(isA(Review.class)))
-                .thenReturn(Mono.just(updatedReview));
-
         // when
         webTestClient
                 .put()
@@ -126,10 +363,36 @@ public class ReviewsUnitTest {
                 .bodyValue(updatedReview)
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
                 .expectBody(Review.class)
                 .isEqualTo(updatedReview);
 
         // then
+        verify(reviewSummaryRepository).record(1L, 9.0, 9.5);
+    }
+
+    @Test
+    void updateReview_versionConflict() {
+        // given
+        var reviewId = "abc";
+        var updatedReview = new Review(reviewId, 1L, "Updated Awesome Movie", 9.5);
+
+        when(reviewReactiveRepository.updateContent(reviewId, "Updated Awesome Movie", 9.5, 3L))
+                .thenReturn(Mono.empty());
+        when(reviewReactiveRepository.existsById(reviewId))
+                .thenReturn(Mono.just(true));
+
+        // when
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", reviewId)
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .bodyValue(updatedReview)
+                .exchange()
+                .expectStatus().isEqualTo(412);
+
+        // then
+        verify(reviewSummaryRepository, Mockito.never()).record(any(), any(), any());
     }
 
     @Test
@@ -138,7 +401,7 @@ public class ReviewsUnitTest {
         var reviewId = "def";
         var updatedReview = new Review(reviewId, 1L, "Updated Awesome Movie", 9.5);
 
-        when(reviewReactiveRepository.findById(isA(String.class)))
+        when(reviewReactiveRepository.updateContent(eq(reviewId), any(), any(), isNull()))
                 .thenReturn(Mono.empty());
 
         // when
@@ -157,8 +420,9 @@ public class ReviewsUnitTest {
     @Test
     void deleteReview() {
         // given
-        when(reviewReactiveRepository.deleteById(isA(String.class)))
-                .thenReturn(Mono.empty());
+        var review = new Review("123", 1L, "Awesome Movie", 9.0);
+        when(reviewReactiveRepository.deleteAndReturn("123"))
+                .thenReturn(Mono.just(review));
 
         // when
         webTestClient
@@ -168,5 +432,270 @@ public class ReviewsUnitTest {
                 .expectStatus().isNoContent();
 
         // then
+        verify(reviewSummaryRepository).record(1L, 9.0, null);
+        verify(reviewReactiveRepository, Mockito.never()).findById(any(String.class));
+    }
+
+    @Test
+    void deleteReview_notFound() {
+        // given
+        when(reviewReactiveRepository.deleteAndReturn("456"))
+                .thenReturn(Mono.empty());
+
+        // when
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", 456)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class)
+                .isEqualTo("Review not found for the given Review ID 456");
+
+        // then
+        verify(reviewSummaryRepository, Mockito.never()).record(any(), any(), any());
+    }
+
+    @Test
+    void getReviewsByMovies() {
+        // given
+        when(reviewReactiveRepository.findRecentReviews(List.of(1L, 2L), 5, Set.of()))
+                .thenReturn(Flux.just(new MovieReviews(1L, List.of(new Review("abc", 1L, "Awesome Movie", 9.0))),
+                        new MovieReviews(2L, List.of())));
+
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/movies?movieInfoIds=1,2&perMovie=5")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MovieReviews.class)
+                .value(movieReviews -> {
+                    assertEquals(2, movieReviews.size());
+                    assertEquals(1, movieReviews.get(0).getReviews().size());
+                    assertEquals(2L, movieReviews.get(1).getMovieInfoId());
+                });
+
+        // then
+    }
+
+    @Test
+    void getReviewsByMovies_noIds() {
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/movies")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getReviewSummary() {
+        // given
+        when(reviewSummaryRepository.findById(1L))
+                .thenReturn(Mono.just(new ReviewSummary(1L, 2, 17.0, 8.0, 9.0, Map.of("8", 1L, "9", 1L), 2)));
+
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.average").isEqualTo(8.5)
+                .jsonPath("$.histogram.9").isEqualTo(1);
+
+        // then
+    }
+
+    @Test
+    void getReviewSummary_noReviews() {
+        // given
+        when(reviewSummaryRepository.findById(2L))
+                .thenReturn(Mono.empty());
+
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(0)
+                .jsonPath("$.average").doesNotExist();
+
+        // then
+    }
+
+    @Test
+    void getReviewEvents_since() {
+        // given
+        var review = new Review("abc", 1L, "Awesome Movie", 9.0);
+        when(reviewEventLog.releasedUpTo())
+                .thenReturn(6L);
+        when(reviewEventLog.since(5L, 6L, null))
+                .thenReturn(Flux.just(new ReviewEvent(6, ReviewEventType.UPDATED, "abc", review, null)));
+
+        // when
+        var events = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/events?since=5")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(ReviewEvent.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(events)
+                .assertNext(event -> {
+                    assertEquals(6, event.getSequence());
+                    assertEquals(ReviewEventType.UPDATED, event.getType());
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void getReviewsStream() {
+        // given
+        reviewEventEmitter.emit(new ReviewEvent(3, ReviewEventType.CREATED, "abc",
+                new Review("abc", 1L, "Awesome Movie", 9.0), null));
+
+        // when
+        var reviews = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Review.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(reviews)
+                .assertNext(review -> assertEquals("abc", review.getReviewId()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void getReviewsStream_lastEventId() {
+        // given
+        when(reviewEventLog.releasedUpTo())
+                .thenReturn(8L);
+        when(reviewEventLog.since(5L, 8L, 1L))
+                .thenReturn(Flux.just(
+                        new ReviewEvent(6, ReviewEventType.CREATED, "abc", new Review("abc", 1L, "Awesome Movie", 9.0), null),
+                        new ReviewEvent(7, ReviewEventType.DELETED, "def", new Review("def", 1L, "Bad Movie", 2.0), null),
+                        new ReviewEvent(8, ReviewEventType.CREATED, "ghi", new Review("ghi", 1L, "Good Movie", 7.0), null)));
+
+        // when
+        var events = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stream?movieInfoId=1")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", "5")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<Review>>() {
+                })
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(events)
+                .assertNext(event -> {
+                    assertEquals("6", event.id());
+                    assertEquals("abc", event.data().getReviewId());
+                })
+                .assertNext(event -> assertEquals("8", event.id()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void getReviewEvents_sinceCompletesWhenTooManyLiveEventsWait() {
+        // given
+        ReflectionTestUtils.setField(reviewHandler, "maxPending", 3);
+        when(reviewEventLog.releasedUpTo())
+                .thenReturn(11L);
+        when(reviewEventLog.since(10L, 11L, 42L))
+                .thenReturn(Flux.defer(() -> {
+                    // written while the replay runs, the first one is replayed as well
+                    LongStream.rangeClosed(11, 14).forEach(sequence -> reviewEventEmitter.emit(
+                            new ReviewEvent(sequence, ReviewEventType.CREATED, "r" + sequence,
+                                    new Review("r" + sequence, 42L, "Awesome Movie", 9.0), null)));
+                    return Flux.just(new ReviewEvent(11, ReviewEventType.CREATED, "r11",
+                            new Review("r11", 42L, "Awesome Movie", 9.0), null));
+                }));
+
+        try {
+            // when
+            var events = webTestClient
+                    .get()
+                    .uri(REVIEWS_URL + "/events?since=10&movieInfoId=42")
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .returnResult(ReviewEvent.class)
+                    .getResponseBody();
+
+            // then
+            StepVerifier.create(events.map(ReviewEvent::getSequence))
+                    .expectNext(11L, 12L, 13L)
+                    .verifyComplete();
+        } finally {
+            ReflectionTestUtils.setField(reviewHandler, "maxPending", 1000);
+        }
+    }
+
+    @Test
+    void getTopRated() {
+        // given
+        topRatedLeaderboard.apply(ReviewEvent.created(new Review(new ObjectId().toHexString(), 1L, "Awesome Movie", 9.0)));
+
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/top?window=7d&k=5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TopRatedMovie.class)
+                .value(top -> {
+                    assertEquals(1, top.size());
+                    assertEquals(1L, top.get(0).getMovieInfoId());
+                    assertEquals(9.0, top.get(0).getAverage());
+                });
+
+        // then
+    }
+
+    @Test
+    void getTopRated_unsupportedWindow() {
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/top?window=3d")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("Unsupported window : 3d, supported : 1d,7d");
+
+        // then
+    }
+
+    @Test
+    void getTopRated_invalidK() {
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/top?k=1e3")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("Invalid k : 1e3");
+
+        // then
     }
 }
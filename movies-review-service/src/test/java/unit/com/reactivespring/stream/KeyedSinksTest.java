@@ -0,0 +1,54 @@
+package com.reactivespring.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KeyedSinksTest {
+
+    KeyedSinks<Long, String> keyedSinks = new KeyedSinks<>("test.stream", new SimpleMeterRegistry());
+
+    @Test
+    void emit_onlyReachesSubscribersOfTheKey() {
+        // given
+        var firstMovie = keyedSinks.asFlux(1L);
+        var secondMovie = keyedSinks.asFlux(2L);
+
+        // when
+        StepVerifier.create(firstMovie)
+                .then(() -> StepVerifier.create(secondMovie)
+                        .then(() -> {
+                            keyedSinks.emit(1L, "first");
+                            keyedSinks.emit(2L, "second");
+                            keyedSinks.emit(3L, "nobody");
+                        })
+                        .expectNext("second")
+                        .thenCancel()
+                        .verify(Duration.ofSeconds(5)))
+                .expectNext("first")
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        // then
+        assertEquals(0, keyedSinks.size());
+    }
+
+    @Test
+    void asFlux_sinkIsDroppedWithItsLastSubscriber() {
+        // given
+        var first = keyedSinks.asFlux(1L).subscribe();
+        var second = keyedSinks.asFlux(1L).subscribe();
+
+        // when
+        first.dispose();
+
+        // then
+        assertEquals(1, keyedSinks.size());
+        second.dispose();
+        assertEquals(0, keyedSinks.size());
+    }
+}
@@ -0,0 +1,117 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import com.reactivespring.domain.ReviewEventType;
+import com.reactivespring.util.SerializedEmitter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReviewEventLogTest {
+
+    List<ReviewEvent> released = new CopyOnWriteArrayList<>();
+
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    ReviewEventLog reviewEventLog;
+
+    @BeforeEach
+    void setUp() {
+        reactiveMongoTemplate = mock(ReactiveMongoTemplate.class);
+        var indexOperations = mock(ReactiveIndexOperations.class);
+        when(reactiveMongoTemplate.collectionExists(ReviewEventLog.COLLECTION)).thenReturn(Mono.just(true));
+        when(reactiveMongoTemplate.indexOps(ReviewEventLog.COLLECTION)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any())).thenReturn(Mono.just("sequence_1"));
+        var emitter = new SerializedEmitter<ReviewEvent>("test.stream", event -> {
+            released.add(event);
+            return Sinks.EmitResult.OK;
+        }, new SimpleMeterRegistry());
+
+        reviewEventLog = new ReviewEventLog(reactiveMongoTemplate, emitter, 100, 1024, Duration.ofMillis(50));
+    }
+
+    @Test
+    void received_releasesInSequenceOrder() {
+        // when
+        reviewEventLog.received(event(2));
+        reviewEventLog.received(event(3));
+        reviewEventLog.received(event(1));
+        // read again by a restarted cursor
+        reviewEventLog.received(event(2));
+
+        // then
+        assertEquals(List.of(1L, 2L, 3L), sequences());
+        assertEquals(3, reviewEventLog.releasedUpTo());
+    }
+
+    @Test
+    void release_givesUpOnAMissingSequence() throws InterruptedException {
+        // given
+        reviewEventLog.received(event(1));
+        reviewEventLog.received(event(3));
+
+        // when
+        Thread.sleep(100);
+        reviewEventLog.release();
+        reviewEventLog.received(event(2));
+
+        // then
+        assertEquals(List.of(1L, 3L), sequences());
+        assertEquals(3, reviewEventLog.releasedUpTo());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void appendAll_numbersTheBatchFromOneRange() {
+        // given
+        when(reactiveMongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Document.class), eq(ReviewEventLog.SEQUENCES)))
+                .thenReturn(Mono.just(new Document("value", 12L)));
+        when(reactiveMongoTemplate.insert(any(Collection.class), eq(ReviewEventLog.COLLECTION)))
+                .thenAnswer(invocation -> Flux.fromIterable((Collection<ReviewEvent>) invocation.getArgument(0)));
+        var events = List.of(event(0), event(0), event(0));
+
+        // when
+        var appended = reviewEventLog.appendAll(events);
+
+        // then
+        StepVerifier.create(appended.map(ReviewEvent::getSequence))
+                .expectNext(10L, 11L, 12L)
+                .verifyComplete();
+        verify(reactiveMongoTemplate).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Document.class), eq(ReviewEventLog.SEQUENCES));
+    }
+
+    private List<Long> sequences() {
+        return released.stream().map(ReviewEvent::getSequence).collect(Collectors.toList());
+    }
+
+    private static ReviewEvent event(long sequence) {
+        return new ReviewEvent(sequence, ReviewEventType.CREATED, "r" + sequence,
+                new Review("r" + sequence, 1L, "Awesome Movie", 9.0), null);
+    }
+}
@@ -0,0 +1,171 @@
+package com.reactivespring.top;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewEvent;
+import com.reactivespring.domain.TopRatedMovie;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopRatedLeaderboardTest {
+
+    private static final Duration DAY = Duration.ofDays(1);
+    private static final Duration WEEK = Duration.ofDays(7);
+
+    MutableClock clock = new MutableClock(Instant.parse("2026-10-19T12:30:00Z"));
+
+    long sequence;
+
+    TopRatedLeaderboard leaderboard = new TopRatedLeaderboard(List.of(DAY, WEEK), Duration.ofHours(1), 10, 100, clock);
+
+    @Test
+    void top_rankedByBayesianAverage() {
+        // given
+        leaderboard.apply(created(1L, 10.0));
+        leaderboard.apply(created(1L, 10.0));
+        for (int i = 0; i < 200; i++) {
+            leaderboard.apply(created(2L, 9.0));
+        }
+        for (int i = 0; i < 50; i++) {
+            leaderboard.apply(created(3L, 4.0));
+        }
+
+        // when
+        leaderboard.advance();
+
+        // then
+        assertEquals(List.of(2L, 1L, 3L), movieIds(leaderboard.top(WEEK, 10)));
+        var first = leaderboard.top(WEEK, 1).get(0);
+        assertEquals(200, first.getCount());
+        assertEquals(9.0, first.getAverage());
+    }
+
+    @Test
+    void apply_updatesAndDeletesTakeBackTheirRating() {
+        // given
+        var good = created(1L, 9.0);
+        var bad = created(2L, 2.0);
+        leaderboard.apply(good);
+        leaderboard.apply(bad);
+        // read again by a restarted cursor
+        leaderboard.apply(good);
+
+        // when
+        var review = bad.getReview();
+        leaderboard.apply(sequenced(ReviewEvent.updated(new Review(review.getReviewId(), 2L, "Changed my mind", 10.0),
+                review)));
+        leaderboard.apply(sequenced(ReviewEvent.deleted(good.getReview())));
+        leaderboard.advance();
+
+        // then
+        var top = leaderboard.top(WEEK, 10);
+        assertEquals(1, top.size());
+        assertEquals(2L, top.get(0).getMovieInfoId());
+        assertEquals(1, top.get(0).getCount());
+        assertEquals(10.0, top.get(0).getAverage());
+    }
+
+    @Test
+    void apply_reviewsWithoutAnObjectIdAreLeftOut() {
+        // when
+        leaderboard.apply(sequenced(ReviewEvent.created(new Review("abc", 1L, "Review", 9.0))));
+        leaderboard.advance();
+
+        // then
+        assertTrue(leaderboard.top(WEEK, 10).isEmpty());
+    }
+
+    @Test
+    void advance_reviewsLeaveTheWindowsTheyAreTooOldFor() {
+        // given
+        leaderboard.apply(created(1L, 8.0));
+
+        // when
+        clock.add(Duration.ofDays(2));
+        leaderboard.advance();
+
+        // then
+        assertTrue(leaderboard.top(DAY, 10).isEmpty());
+        assertEquals(List.of(1L), movieIds(leaderboard.top(WEEK, 10)));
+
+        clock.add(Duration.ofDays(6));
+        leaderboard.advance();
+        assertTrue(leaderboard.top(WEEK, 10).isEmpty());
+    }
+
+    @Test
+    void load_countsTheReviewsCreatedBeforeTheRebuildOnce() {
+        // given
+        var before = created(1L, 7.0);
+        clock.add(Duration.ofSeconds(1));
+        leaderboard.loading();
+        var after = created(2L, 9.0);
+
+        // when
+        // the CREATED event of a review written before the rebuild started comes in while it runs
+        leaderboard.apply(before);
+        leaderboard.apply(after);
+        leaderboard.load(before.getReview());
+        leaderboard.load(new Review(new ObjectId(Date.from(clock.instant().minus(Duration.ofDays(30)))).toHexString(),
+                3L, null, 10.0));
+        leaderboard.advance();
+
+        // then
+        var top = leaderboard.top(WEEK, 10);
+        assertEquals(List.of(2L, 1L), movieIds(top));
+        assertEquals(1, top.get(0).getCount());
+        assertEquals(1, top.get(1).getCount());
+    }
+
+    private ReviewEvent created(Long movieInfoId, Double rating) {
+        var reviewId = new ObjectId(Date.from(clock.instant())).toHexString();
+        return sequenced(ReviewEvent.created(new Review(reviewId, movieInfoId, "Review", rating)));
+    }
+
+    private ReviewEvent sequenced(ReviewEvent event) {
+        event.setSequence(++sequence);
+        return event;
+    }
+
+    private static List<Long> movieIds(List<TopRatedMovie> top) {
+        return top.stream().map(TopRatedMovie::getMovieInfoId).collect(Collectors.toList());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void add(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
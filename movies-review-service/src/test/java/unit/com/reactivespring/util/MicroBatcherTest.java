@@ -0,0 +1,101 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class MicroBatcherTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void submit_burstIsWrittenInBatches() {
+        // given
+        var batches = new CopyOnWriteArrayList<List<Integer>>();
+        var microBatcher = new MicroBatcher<Integer>("test.insert", 4, Duration.ofMillis(50), 2, 16, items -> {
+            batches.add(items);
+            return Mono.just(Map.of());
+        }, meterRegistry);
+
+        // when
+        var results = Flux.range(1, 10)
+                .flatMap(microBatcher::submit)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // then
+        assertEquals(10, results.size());
+        assertEquals(10, batches.stream().mapToInt(List::size).sum());
+        assertEquals(4, batches.stream().mapToInt(List::size).max().getAsInt());
+        assertEquals(batches.size(), meterRegistry.get("test.insert.batch.size").summary().count());
+        assertEquals(10, meterRegistry.get("test.insert.wait").timer().count());
+        microBatcher.close();
+    }
+
+    @Test
+    void submit_failureGoesToItsSubmitterOnly() {
+        // given
+        var microBatcher = new MicroBatcher<String>("test.insert", 2, Duration.ofSeconds(1), 1, 16,
+                items -> Mono.just(Map.of(items.indexOf("bad"), new IllegalStateException("bad"))), meterRegistry);
+
+        // when
+        var good = microBatcher.submit("good");
+        var bad = microBatcher.submit("bad");
+
+        // then
+        StepVerifier.create(Flux.merge(good.map(List::of), bad.map(List::of)))
+                .expectNext(List.of("good"))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(5));
+        microBatcher.close();
+    }
+
+    @Test
+    void submit_batchesBeyondMaxQueuedAreRejected() throws Exception {
+        // given
+        var writes = Sinks.<Map<Integer, Throwable>>one();
+        var microBatcher = new MicroBatcher<String>("test.insert", 1, Duration.ofSeconds(1), 1, 1,
+                items -> writes.asMono(), meterRegistry);
+
+        // when
+        var written = microBatcher.submit("written").toFuture();
+        var queued = microBatcher.submit("queued").toFuture();
+        var rejected = microBatcher.submit("rejected");
+
+        // then
+        StepVerifier.create(rejected)
+                .expectErrorSatisfies(ex -> assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                        ((ResponseStatusException) ex).getStatus()))
+                .verify(Duration.ofSeconds(5));
+        assertEquals(1, meterRegistry.get("test.insert.rejected").counter().count());
+
+        writes.tryEmitValue(Map.of());
+        assertEquals("written", written.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        microBatcher.close();
+    }
+
+    @Test
+    void zeroWindow_disablesBatching() {
+        // when
+        var microBatcher = new MicroBatcher<String>("test.insert", 2, Duration.ZERO, 1, 16,
+                items -> Mono.just(Map.of()), meterRegistry);
+
+        // then
+        assertFalse(microBatcher.isEnabled());
+    }
+}
@@ -0,0 +1,95 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SerializedEmitterTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void emit_concurrentProducersLoseNothing() throws InterruptedException {
+        // given
+        var producers = 8;
+        var perProducer = 20_000;
+        Sinks.Many<Integer> sink = Sinks.many().replay().all();
+        var emitter = new SerializedEmitter<>("test.stream", sink::tryEmitNext, meterRegistry);
+        var executor = Executors.newFixedThreadPool(producers);
+        var start = new CountDownLatch(1);
+
+        // when
+        for (int producer = 0; producer < producers; producer++) {
+            var offset = producer * perProducer;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perProducer; i++) {
+                    emitter.emit(offset + i);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        sink.tryEmitComplete();
+
+        // then
+        var received = sink.asFlux().collectList().block(Duration.ofSeconds(5));
+        assertEquals(producers * perProducer, received.size());
+        assertEquals(producers * perProducer, new HashSet<>(received).size());
+        assertTrue(meterRegistry.find("test.stream.emit.failures").counters().isEmpty());
+    }
+
+    @Test
+    void emit_targetIsNeverCalledConcurrently() throws InterruptedException {
+        // given
+        var calls = new ArrayList<Integer>();
+        var emitter = new SerializedEmitter<Integer>("test.stream", element -> {
+            // not thread safe on purpose, concurrent calls would lose elements or throw
+            calls.add(element);
+            return Sinks.EmitResult.OK;
+        }, meterRegistry);
+        var executor = Executors.newFixedThreadPool(4);
+
+        // when
+        for (int producer = 0; producer < 4; producer++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    emitter.emit(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // then
+        assertEquals(40_000, calls.size());
+    }
+
+    @Test
+    void emit_failuresAreCounted() {
+        // given
+        Sinks.Many<Integer> sink = Sinks.many().multicast().directBestEffort();
+        var emitter = new SerializedEmitter<>("test.stream", sink::tryEmitNext, meterRegistry);
+        sink.tryEmitComplete();
+
+        // when
+        emitter.emit(1);
+        emitter.emit(2);
+
+        // then
+        assertEquals(2.0, meterRegistry.get("test.stream.emit.failures").tag("result", "FAIL_TERMINATED")
+                .counter().count());
+    }
+}
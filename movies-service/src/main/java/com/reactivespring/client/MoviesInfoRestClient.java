@@ -1,16 +1,20 @@
 package com.reactivespring.client;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
 import com.reactivespring.util.RetryUtil;
+import com.reactivespring.util.SignalTracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -23,15 +27,32 @@ import java.time.Duration;
 @Slf4j
 public class MoviesInfoRestClient {
     private final WebClient webClient;
+    private final Cache<String, ResponseEntity<MovieInfo>> movieInfoResponseCache;
+    private final SignalTracer signalTracer;
 
     @Value("${restClient.movieInfoUrl}")
     private String moviesInfoUrl;
 
+    // comma separated MovieInfo fields to ask for, empty for the whole document
+    @Value("${restClient.movieInfoFields:}")
+    private String movieInfoFields;
+
     public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
-        var url = moviesInfoUrl.concat("/{id}");
+        var uriBuilder = UriComponentsBuilder.fromHttpUrl(moviesInfoUrl).path("/{id}");
+        if (!movieInfoFields.isBlank()) {
+            uriBuilder.queryParam("fields", movieInfoFields);
+        }
+        var uri = uriBuilder.buildAndExpand(movieId).toUriString();
+        var cached = movieInfoResponseCache.getIfPresent(uri);
+
         return webClient
                 .get()
-                .uri(url, movieId)
+                .uri(uri)
+                .headers(headers -> {
+                    if (cached != null) {
+                        headers.setIfNoneMatch(cached.getHeaders().getETag());
+                    }
+                })
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     log.info("Status code is {}", clientResponse.statusCode().value());
@@ -57,10 +78,20 @@ public class MoviesInfoRestClient {
                                     "Server Exception in MoviesInfoService " + responseMessage
                             )));
                 })
-                .bodyToMono(MovieInfo.class)
+                .toEntity(MovieInfo.class)
+                .flatMap(entity -> {
+                    // 304 : what we have is still current
+                    if (entity.getStatusCode() == HttpStatus.NOT_MODIFIED && cached != null) {
+                        return Mono.justOrEmpty(cached.getBody());
+                    }
+                    if (entity.getHeaders().getETag() != null) {
+                        movieInfoResponseCache.put(uri, entity);
+                    }
+                    return Mono.justOrEmpty(entity.getBody());
+                })
 //                .retry(3)
                 .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .transform(signalTracer.mono("client.movieinfo"));
     }
 
     public Flux<MovieInfo> retrieveMovieInfoStream() {
@@ -89,6 +120,6 @@ public class MoviesInfoRestClient {
                 .bodyToFlux(MovieInfo.class)
 //                .retry(3)
                 .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .transform(signalTracer.flux("client.movieinfo.stream"));
     }
 }
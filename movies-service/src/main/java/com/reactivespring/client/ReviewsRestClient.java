@@ -9,27 +9,59 @@ import com.reactivespring.util.RetryUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class ReviewsRestClient {
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]+)>\\s*;\\s*rel=\"next\"");
+
     private final WebClient webClient;
 
     @Value("${restClient.reviewsUrl}")
     private String reviewsUrl;
 
+    // comma separated Review fields to ask for, empty for the whole document
+    @Value("${restClient.reviewFields:}")
+    private String reviewFields;
+
+    // reviews asked per page, the review service serves up to 1000 and defaults to 100
+    @Value("${restClient.reviewPageSize:1000}")
+    private int reviewPageSize;
+
+    /**
+     * Every review of the movie : the pages are read one after the other, following the rel="next" Link of each
+     * full page, so a movie with more reviews than a page is not cut short.
+     */
     public Flux<Review> retrieveReviews(String movieId) {
-        var uri = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+        var uriBuilder = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
                 .queryParam("movieInfoId", movieId)
-                .buildAndExpand().toUriString();
+                .queryParam("limit", reviewPageSize);
+        if (!reviewFields.isBlank()) {
+            uriBuilder.queryParam("fields", reviewFields);
+        }
+        var uri = uriBuilder.buildAndExpand().toUri();
 
+        return retrievePage(uri)
+                .expand(page -> nextPage(page).map(this::retrievePage).orElse(Mono.empty()))
+                .flatMapIterable(page -> page.getBody() == null ? List.of() : page.getBody());
+    }
+
+    private Mono<ResponseEntity<List<Review>>> retrievePage(URI uri) {
         return webClient
                 .get()
                 .uri(uri)
@@ -53,7 +85,15 @@ public class ReviewsRestClient {
                                     "Server Exception in ReviewsService " + responseMessage
                             )));
                 })
-                .bodyToFlux(Review.class)
+                .toEntityList(Review.class)
                 .retryWhen(RetryUtil.retrySpec());
     }
+
+    private static Optional<URI> nextPage(ResponseEntity<List<Review>> page) {
+        return page.getHeaders().getOrEmpty(HttpHeaders.LINK).stream()
+                .map(NEXT_LINK::matcher)
+                .filter(Matcher::find)
+                .map(matcher -> URI.create(matcher.group(1)))
+                .findFirst();
+    }
 }
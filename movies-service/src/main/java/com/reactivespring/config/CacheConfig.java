@@ -0,0 +1,25 @@
+package com.reactivespring.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.domain.MovieInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.ResponseEntity;
+
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Last MovieInfo response per url along with its ETag, revalidated with If-None-Match on every read.
+     */
+    @Bean
+    public Cache<String, ResponseEntity<MovieInfo>> movieInfoResponseCache(
+            @Value("${restClient.movieInfoCache.maximumSize:10000}") long maximumSize
+    ) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+}
@@ -5,7 +5,8 @@ public class MoviesInfoClientException extends RuntimeException{
     private Integer statusCode;
 
     public MoviesInfoClientException(String message, Integer statusCode) {
-        super(message);
+        // answered with a 4xx, the stack trace would never be looked at
+        super(message, null, false, false);
         this.message = message;
         this.statusCode = statusCode;
     }
@@ -4,7 +4,8 @@ public class ReviewsClientException extends RuntimeException{
     private String message;
 
     public ReviewsClientException(String message) {
-        super(message);
+        // answered with a 4xx, the stack trace would never be looked at
+        super(message, null, false, false);
         this.message = message;
     }
 }
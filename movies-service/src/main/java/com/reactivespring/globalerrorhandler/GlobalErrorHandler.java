@@ -1,6 +1,8 @@
 package com.reactivespring.globalerrorhandler;
 
 import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.util.ErrorReporter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -8,11 +10,15 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 @ControllerAdvice
+@RequiredArgsConstructor
 @Slf4j
 public class GlobalErrorHandler {
+
+    private final ErrorReporter errorReporter;
+
     @ExceptionHandler(MoviesInfoClientException.class)
     public ResponseEntity<String> handleClientException(MoviesInfoClientException exception) {
-        log.error("Exception caught in handleClientException : {}", exception.getMessage());
+        errorReporter.report(exception.getStatusCode(), exception);
 
         return ResponseEntity
                 .status(exception.getStatusCode())
@@ -21,7 +27,7 @@ public class GlobalErrorHandler {
 
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<String> handleRuntimeException(RuntimeException exception) {
-        log.error("Exception caught in handleClientException : {}", exception.getMessage());
+        errorReporter.report(HttpStatus.INTERNAL_SERVER_ERROR.value(), exception);
 
         return ResponseEntity
                 .status(HttpStatus.INTERNAL_SERVER_ERROR)
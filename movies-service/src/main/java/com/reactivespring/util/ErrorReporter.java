@@ -0,0 +1,72 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts every error handed back to a client into http.server.errors{exception, status} and logs at most
+ * maxPerInterval of them per exception type and interval, the rest are only counted and summed up on the
+ * next line that gets through. 4xx are logged without their stack trace, they are expected.
+ */
+@Slf4j
+public class ErrorReporter {
+
+    private final int maxPerInterval;
+    private final long intervalNanos;
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, Window> windows = new ConcurrentHashMap<>();
+
+    public ErrorReporter(int maxPerInterval, Duration interval, MeterRegistry meterRegistry) {
+        this.maxPerInterval = maxPerInterval;
+        this.intervalNanos = interval.toNanos();
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void report(int status, Throwable ex) {
+        Counter.builder("http.server.errors")
+                .tag("exception", ex.getClass().getSimpleName())
+                .tag("status", String.valueOf(status))
+                .register(meterRegistry)
+                .increment();
+
+        var suppressed = windows.computeIfAbsent(ex.getClass(), type -> new Window()).acquire(System.nanoTime());
+        if (suppressed < 0) {
+            return;
+        }
+        var similar = suppressed == 0 ? "" : " (" + suppressed + " similar suppressed)";
+        if (status >= 500) {
+            log.error("{} answered with {} : {}{}", ex.getClass().getSimpleName(), status, ex.getMessage(), similar, ex);
+        } else {
+            log.warn("{} answered with {} : {}{}", ex.getClass().getSimpleName(), status, ex.getMessage(), similar);
+        }
+    }
+
+    private final class Window {
+        private long start = Long.MIN_VALUE;
+        private int logged;
+        private int suppressed;
+
+        /**
+         * @return the number of lines dropped since the last one that was logged, -1 when this one is dropped
+         */
+        private synchronized int acquire(long now) {
+            if (start == Long.MIN_VALUE || now - start >= intervalNanos) {
+                start = now;
+                logged = 0;
+            }
+            if (logged >= maxPerInterval) {
+                suppressed++;
+                return -1;
+            }
+            logged++;
+            var dropped = suppressed;
+            suppressed = 0;
+            return dropped;
+        }
+    }
+}
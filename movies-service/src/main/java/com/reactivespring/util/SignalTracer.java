@@ -0,0 +1,110 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Stand-in for .log() on hot paths : traces a sampled fraction of subscriptions into
+ * reactive.trace.first (subscribe to first element), reactive.trace.duration (subscribe to terminal signal)
+ * and reactive.trace.elements, tagged with the trace name, plus one debug line per traced subscription.
+ * With a zero sample rate the operator hands the publisher back untouched.
+ */
+@Slf4j
+public class SignalTracer {
+
+    private final double sampleRate;
+    private final MeterRegistry meterRegistry;
+
+    public SignalTracer(double sampleRate, MeterRegistry meterRegistry) {
+        this.sampleRate = sampleRate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> flux(String name) {
+        if (sampleRate <= 0) {
+            return Function.identity();
+        }
+        return source -> Flux.defer(() -> {
+            if (!sampled()) {
+                return source;
+            }
+            var trace = new Trace(name);
+            return source
+                    .doOnSubscribe(subscription -> trace.start())
+                    .doOnNext(value -> trace.next())
+                    .doFinally(trace::finish);
+        });
+    }
+
+    public <T> Function<Mono<T>, Mono<T>> mono(String name) {
+        if (sampleRate <= 0) {
+            return Function.identity();
+        }
+        return source -> Mono.defer(() -> {
+            if (!sampled()) {
+                return source;
+            }
+            var trace = new Trace(name);
+            return source
+                    .doOnSubscribe(subscription -> trace.start())
+                    .doOnNext(value -> trace.next())
+                    .doFinally(trace::finish);
+        });
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private final class Trace {
+        private final String name;
+        private volatile long startNanos;
+        private volatile long firstNanos;
+        private volatile long elements;
+
+        private Trace(String name) {
+            this.name = name;
+        }
+
+        private void start() {
+            startNanos = System.nanoTime();
+        }
+
+        private void next() {
+            // onNext is serialized, a plain increment is enough
+            if (elements++ == 0) {
+                firstNanos = System.nanoTime();
+                Timer.builder("reactive.trace.first")
+                        .tag("name", name)
+                        .register(meterRegistry)
+                        .record(firstNanos - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void finish(SignalType signalType) {
+            var durationNanos = System.nanoTime() - startNanos;
+            Timer.builder("reactive.trace.duration")
+                    .tag("name", name)
+                    .tag("signal", signalType.name())
+                    .register(meterRegistry)
+                    .record(durationNanos, TimeUnit.NANOSECONDS);
+            DistributionSummary.builder("reactive.trace.elements")
+                    .tag("name", name)
+                    .register(meterRegistry)
+                    .record(elements);
+
+            log.debug("{} {} after {} ms, {} elements, first after {} ms", name, signalType,
+                    TimeUnit.NANOSECONDS.toMillis(durationNanos), elements,
+                    elements == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(firstNanos - startNanos));
+        }
+    }
+}
@@ -65,6 +65,58 @@ class MoviesControllerIntgTest {
                 // then
         }
 
+    @Test
+    void retrieveMovieById_notModified() {
+        // given
+        var movieId = "def";
+
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("ETag", "\"1\"")
+                        .withBodyFile("movieinfo.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")
+                )
+        );
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk();
+
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .withHeader("If-None-Match", equalTo("\"1\""))
+                .willReturn(aResponse()
+                        .withStatus(304)
+                        .withHeader("ETag", "\"1\"")
+                )
+        );
+
+        // when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assert movie != null;
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                });
+
+        // then
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId))
+                .withHeader("If-None-Match", equalTo("\"1\"")));
+    }
+
     @Test
     void retrieveMovieById_404() {
         // given
@@ -92,6 +144,49 @@ class MoviesControllerIntgTest {
         WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId)));
     }
 
+    @Test
+    void retrieveMovieById_reviewPages() {
+        // given
+        var movieId = "abc";
+
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                )
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("limit", equalTo("1000"))
+                .withQueryParam("after", absent())
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("Link", "<http://localhost:8084/v1/reviews?movieInfoId=abc&limit=1000&after=r2>; rel=\"next\"")
+                        .withBodyFile("reviews.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("after", equalTo("r2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"reviewId\": \"3\", \"movieInfoId\": 1, \"comment\": \"Good Movie\", \"rating\": 7.0}]")));
+
+        // when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assert movie != null;
+                    assertEquals(3, movie.getReviewList().size());
+                    assertEquals("3", movie.getReviewList().get(2).getReviewId());
+                });
+
+        // then
+    }
+
     @Test
     void retrieveMovieById_reviews_404() {
         // given